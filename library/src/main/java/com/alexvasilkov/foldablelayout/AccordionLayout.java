@@ -0,0 +1,110 @@
+package com.alexvasilkov.foldablelayout;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.util.AttributeSet;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import com.alexvasilkov.foldablelayout.shading.FoldShading;
+import com.alexvasilkov.foldablelayout.shading.SimpleFoldShading;
+
+/**
+ * Layout which folds its content as an accordion of N horizontal panels.
+ * <p/>
+ * All panels are drawn from a single content cache, so folding costs one content capture per
+ * frame no matter how many panels are used. Child views added to this layout are placed into
+ * internal foldable layout and are arranged as in {@link FrameLayout}.
+ */
+public class AccordionLayout extends FrameLayout {
+
+    private static final int DEFAULT_PANELS_COUNT = 4;
+
+    private FoldableItemLayout foldableLayout;
+    private float foldProgress;
+
+    public AccordionLayout(Context context) {
+        super(context);
+        init(context);
+    }
+
+    public AccordionLayout(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init(context);
+    }
+
+    public AccordionLayout(Context context, AttributeSet attrs, int defStyle) {
+        super(context, attrs, defStyle);
+        init(context);
+    }
+
+    private void init(Context context) {
+        foldableLayout = new FoldableItemLayout(context);
+        foldableLayout.setFoldShading(new SimpleFoldShading());
+        foldableLayout.setAccordionPanels(DEFAULT_PANELS_COUNT);
+
+        final int matchParent = LayoutParams.MATCH_PARENT;
+        super.addView(foldableLayout, -1, new LayoutParams(matchParent, matchParent));
+    }
+
+    @Override
+    public void addView(View child, int index, ViewGroup.LayoutParams params) {
+        if (child == foldableLayout) {
+            super.addView(child, index, params);
+        } else {
+            // Content views are folded by internal layout
+            foldableLayout.getBaseLayout().addView(child, index, params);
+        }
+    }
+
+    /**
+     * Sets count of panels to split content into. Default is 4.
+     */
+    @SuppressWarnings("unused") // Public API
+    public void setPanelsCount(int count) {
+        if (count < 2) {
+            throw new IllegalArgumentException("Panels count should be at least 2");
+        }
+        foldableLayout.setAccordionPanels(count);
+    }
+
+    /**
+     * Sets fold progress from 0 (unfolded) to 1 (fully folded).
+     */
+    @SuppressWarnings("unused") // Public API
+    public void setFoldProgress(float progress) {
+        foldProgress = Math.max(0f, Math.min(progress, 1f));
+        foldableLayout.setAccordionFold(foldProgress);
+    }
+
+    @SuppressWarnings("unused") // Public API
+    public float getFoldProgress() {
+        return foldProgress;
+    }
+
+    /**
+     * Sets shading to draw over each panel, {@link SimpleFoldShading} is used by default.
+     */
+    @SuppressWarnings("unused") // Public API
+    public void setFoldShading(FoldShading shading) {
+        foldableLayout.setFoldShading(shading);
+    }
+
+    /**
+     * See {@link FoldableListLayout#setCacheBitmapConfig(Bitmap.Config)}.
+     */
+    @SuppressWarnings("unused") // Public API
+    public void setCacheBitmapConfig(Bitmap.Config config) {
+        foldableLayout.setCacheBitmapConfig(config);
+    }
+
+    /**
+     * See {@link FoldableListLayout#setCaptureMode(int)}.
+     */
+    @SuppressWarnings("unused") // Public API
+    public void setCaptureMode(int captureMode) {
+        foldableLayout.setCaptureMode(captureMode);
+    }
+
+}
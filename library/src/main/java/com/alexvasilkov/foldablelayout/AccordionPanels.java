@@ -0,0 +1,144 @@
+package com.alexvasilkov.foldablelayout;
+
+import android.graphics.Camera;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.view.Gravity;
+
+import com.alexvasilkov.foldablelayout.shading.FoldShading;
+
+/**
+ * Draws content split into N horizontal panels folded as an accordion. Every panel draws its own
+ * strip of the same content cache, so content is captured only once regardless of panels count.
+ * <p/>
+ * Even panels are hinged at their top edge and odd panels at their bottom edge, all panels are
+ * rotated away from the viewer by the same angle, so adjacent edges always meet at the same depth.
+ * Folded panels are stacked from the top of the layout.
+ */
+final class AccordionPanels {
+
+    private final Camera camera = new Camera();
+    private final Matrix matrix = new Matrix();
+    private final float[] point = new float[2];
+    private final Rect panelBounds = new Rect();
+    private final Paint bitmapPaint;
+
+    private int count;
+    private float fold;
+
+    AccordionPanels(int count) {
+        this.count = count;
+
+        camera.setLocation(0f, 0f, -FoldableItemLayout.CAMERA_DISTANCE);
+
+        bitmapPaint = new Paint();
+        bitmapPaint.setDither(true);
+        bitmapPaint.setFilterBitmap(true);
+    }
+
+    void setCount(int count) {
+        this.count = count;
+    }
+
+    /**
+     * Sets fold state from 0 (unfolded) to 1 (fully folded).
+     */
+    void setFold(float fold) {
+        this.fold = Math.max(0f, Math.min(fold, 1f));
+    }
+
+    void setBitmapFiltering(boolean isFiltering) {
+        bitmapPaint.setDither(isFiltering);
+        bitmapPaint.setFilterBitmap(isFiltering);
+    }
+
+    /**
+     * Panels are not visible when fully folded, since they are seen edge-on.
+     */
+    boolean isVisible() {
+        return fold < 1f;
+    }
+
+    /**
+     * Adds content bounds which will be drawn by panels.
+     */
+    void unionDrawnBounds(Rect bounds, int width, int height) {
+        if (isVisible()) {
+            bounds.union(0, 0, width, height);
+        }
+    }
+
+    /**
+     * Draws all panels either from given cache, or directly from content drawer if there is no
+     * cache.
+     */
+    void draw(Canvas canvas, int width, int height, BitmapCache cache,
+            BitmapCache.ContentDrawer drawer, FoldShading shading) {
+        if (!isVisible() || width == 0 || height == 0) {
+            return;
+        }
+
+        final float angle = 90f * fold;
+        final float pivotX = 0.5f * width;
+        float top = 0f;
+
+        for (int i = 0; i < count; i++) {
+            final int gravity = i % 2 == 0 ? Gravity.TOP : Gravity.BOTTOM;
+            final float rotation = gravity == Gravity.TOP ? -angle : angle;
+
+            panelBounds.set(0, height * i / count, width, height * (i + 1) / count);
+            final float pivotY = gravity == Gravity.TOP ? panelBounds.top : panelBounds.bottom;
+            final float farY = gravity == Gravity.TOP ? panelBounds.bottom : panelBounds.top;
+
+            camera.save();
+            camera.rotateX(rotation);
+            camera.getMatrix(matrix);
+            camera.restore();
+            matrix.preTranslate(-pivotX, -pivotY);
+            matrix.postTranslate(pivotX, pivotY);
+
+            // Projected height of the panel
+            point[0] = pivotX;
+            point[1] = farY;
+            matrix.mapPoints(point);
+            final float projectedHeight = Math.abs(point[1] - pivotY);
+
+            // Moving panel to its place in the stack
+            if (gravity == Gravity.TOP) {
+                matrix.postTranslate(0f, top - pivotY);
+                top += projectedHeight;
+            } else {
+                top += projectedHeight;
+                matrix.postTranslate(0f, top - pivotY);
+            }
+
+            canvas.save();
+            canvas.concat(matrix);
+            drawPanel(canvas, cache, drawer, shading, rotation, gravity);
+            canvas.restore();
+        }
+    }
+
+    private void drawPanel(Canvas canvas, BitmapCache cache, BitmapCache.ContentDrawer drawer,
+            FoldShading shading, float rotation, int gravity) {
+        if (shading != null) {
+            shading.onPreDraw(canvas, panelBounds, rotation, gravity);
+        }
+
+        boolean isFiltered = false;
+        if (cache != null) {
+            isFiltered = Utils.applyShadingFilter(bitmapPaint, shading, rotation, gravity);
+            cache.draw(canvas, panelBounds, bitmapPaint);
+        } else {
+            canvas.save();
+            canvas.clipRect(panelBounds);
+            drawer.drawContent(canvas);
+            canvas.restore();
+        }
+
+        Utils.postDrawShading(canvas, panelBounds, shading, rotation, gravity, isFiltered);
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.alexvasilkov.foldablelayout;
+
+import android.graphics.Canvas;
+import android.graphics.Picture;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Asynchronous content capture: content is recorded into a {@link Picture} on main thread
+ * (which is cheap) and then replayed into back cache on a shared worker thread. Once replaying
+ * is done back cache is swapped with the front one, which is drawn by part views.
+ * <p/>
+ * Only one capture can be in progress at a time.
+ */
+final class AsyncCapture {
+
+    private static final int WORKERS_COUNT =
+            Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+
+    private static ExecutorService executor;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Listener listener;
+
+    private final Picture picture = new Picture();
+    private final Rect region = new Rect();
+    private BitmapCache backCache = new BitmapCache();
+
+    private boolean isRunning;
+    private boolean isReleasePending;
+
+    private final BitmapCache.ContentDrawer pictureDrawer = new BitmapCache.ContentDrawer() {
+        @Override
+        public void drawContent(Canvas canvas) {
+            picture.draw(canvas);
+        }
+    };
+
+    private final Runnable replayTask = new Runnable() {
+        @Override
+        public void run() {
+            // Running on worker thread, only back cache and picture are accessed here
+            backCache.capture(region, pictureDrawer);
+            mainHandler.post(completeTask);
+        }
+    };
+
+    private final Runnable completeTask = new Runnable() {
+        @Override
+        public void run() {
+            onReplayed();
+        }
+    };
+
+    AsyncCapture(Listener listener) {
+        this.listener = listener;
+    }
+
+    boolean isRunning() {
+        return isRunning;
+    }
+
+    /**
+     * Records content within given bounds and starts replaying it into back cache.
+     * Back cache will have same size, resolution and config as provided front cache.
+     *
+     * @return False if capture cannot be started and it should be done synchronously
+     */
+    boolean start(BitmapCache.ContentDrawer drawer, Rect bounds, BitmapCache frontCache) {
+        if (isRunning) {
+            return false;
+        }
+
+        backCache.setup(frontCache);
+        backCache.ensureTiles(bounds);
+        if (backCache.isFailed()) {
+            backCache.release();
+            return false;
+        }
+
+        // Recording content on main thread
+        Canvas canvas = picture.beginRecording(frontCache.getWidth(), frontCache.getHeight());
+        canvas.clipRect(bounds);
+        drawer.drawContent(canvas);
+        picture.endRecording();
+
+        region.set(bounds);
+        backCache.setCapturedBounds(bounds);
+
+        isRunning = true;
+        getExecutor().execute(replayTask);
+        return true;
+    }
+
+    /**
+     * Releases back cache, immediately or once current capture is finished.
+     */
+    void release() {
+        if (isRunning) {
+            isReleasePending = true;
+        } else {
+            backCache.release();
+        }
+    }
+
+    private void onReplayed() {
+        isRunning = false;
+
+        if (isReleasePending) {
+            isReleasePending = false;
+            backCache.release();
+        } else {
+            // Swapping caches, old front cache will be used as back cache next time
+            backCache = listener.onCaptured(backCache);
+        }
+    }
+
+    private static ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(WORKERS_COUNT, new ThreadFactory() {
+                private int counter;
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "FoldableLayout-capture-" + (++counter));
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+
+    interface Listener {
+        /**
+         * Called on main thread once new front cache is ready.
+         *
+         * @return Old front cache which will be reused as back cache
+         */
+        BitmapCache onCaptured(BitmapCache cache);
+    }
+
+}
@@ -0,0 +1,292 @@
+package com.alexvasilkov.foldablelayout;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * Bitmap cache of view's content used during fold animation.
+ * <p/>
+ * Content bigger than {@link #MAX_BITMAP_SIZE} pixels in any direction is split into tiles, so
+ * we will not exceed GPU texture size limits. Tiles are lazily leased from {@link BitmapPool} and
+ * only tiles intersecting required bounds are kept, so memory usage is bounded by visible area
+ * rather than by content size.
+ * <p/>
+ * If there is not enough memory then smaller bitmap config and then reduced resolution are tried.
+ * If nothing works then cache is considered as failed, see {@link #isFailed()}.
+ * <p/>
+ * All the bounds are in content coordinates, regardless of cache resolution.
+ */
+final class BitmapCache {
+
+    private static final int MAX_BITMAP_SIZE = 2048;
+    private static final int TILE_SIZE = 1024;
+
+    private static final Bitmap.Config FALLBACK_CONFIG = Bitmap.Config.RGB_565;
+    private static final float FALLBACK_SCALE = 0.5f;
+    // Requested config, fallback config, then both with reduced resolution
+    private static final int FALLBACK_STEPS = 4;
+
+    private int width;
+    private int height;
+    private float resolution = 1f;
+    private Bitmap.Config config = Bitmap.Config.ARGB_8888;
+    private int fallbackStep;
+
+    private float scale = 1f;
+    private Bitmap.Config tilesConfig;
+    private int bitmapWidth;
+    private int bitmapHeight;
+    private int tileWidth;
+    private int tileHeight;
+    private int columns;
+    private Bitmap[] tiles = new Bitmap[0];
+    private Canvas[] canvases = new Canvas[0];
+
+    private final Rect capturedBounds = new Rect();
+
+    private final Rect tmpBounds = new Rect();
+    private final Rect tmpSrc = new Rect();
+    private final RectF tmpDst = new RectF();
+
+    /**
+     * Sets content size, cache resolution and preferred bitmap config. Cache is cleared if any of
+     * these parameters is changed.
+     */
+    void setup(int width, int height, float resolution, Bitmap.Config config) {
+        if (this.width == width && this.height == height
+                && this.resolution == resolution && this.config == config) {
+            return; // Nothing changed
+        }
+
+        release();
+
+        this.width = width;
+        this.height = height;
+        this.resolution = resolution;
+        this.config = config;
+        fallbackStep = 0;
+
+        setupTiles();
+    }
+
+    /**
+     * Sets same content size, cache resolution and bitmap config as in given cache.
+     */
+    void setup(BitmapCache cache) {
+        setup(cache.width, cache.height, cache.resolution, cache.config);
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Whether cache bitmaps cannot be allocated even with lowest quality.
+     */
+    boolean isFailed() {
+        return fallbackStep >= FALLBACK_STEPS;
+    }
+
+    boolean isTiled() {
+        return tiles.length > 1;
+    }
+
+    /**
+     * Allocates tiles intersecting given bounds and releases all other tiles.
+     *
+     * @return Whether tiles set was changed
+     */
+    boolean ensureTiles(Rect bounds) {
+        while (!isFailed()) {
+            try {
+                return allocateTiles(bounds);
+            } catch (OutOfMemoryError outOfMemoryError) {
+                // Trying lower quality
+                release();
+                fallbackStep++;
+                if (fallbackStep % 2 == 1 && config == FALLBACK_CONFIG) {
+                    fallbackStep++; // Fallback config is already used
+                }
+                setupTiles();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Draws content into all allocated tiles intersecting given region.
+     */
+    void capture(Rect region, ContentDrawer drawer) {
+        for (int i = 0; i < tiles.length; i++) {
+            if (tiles[i] != null && getTileBounds(i, tmpBounds)
+                    && Rect.intersects(tmpBounds, region)) {
+                final Canvas canvas = canvases[i];
+                canvas.save();
+                canvas.clipRect(region);
+                canvas.drawColor(0, PorterDuff.Mode.CLEAR);
+                drawer.drawContent(canvas);
+                canvas.restore();
+            }
+        }
+    }
+
+    /**
+     * Draws given bounds of cached content into canvas.
+     */
+    void draw(Canvas canvas, Rect bounds, Paint paint) {
+        for (int i = 0; i < tiles.length; i++) {
+            if (tiles[i] == null) {
+                continue;
+            }
+
+            final int left = (i % columns) * tileWidth;
+            final int top = (i / columns) * tileHeight;
+
+            // Cache bitmap can have reduced resolution
+            tmpSrc.set(
+                    Math.round(bounds.left * scale),
+                    Math.round(bounds.top * scale),
+                    Math.round(bounds.right * scale),
+                    Math.round(bounds.bottom * scale));
+
+            if (tmpSrc.intersect(left, top, left + tiles[i].getWidth(),
+                    top + tiles[i].getHeight())) {
+                tmpDst.set(tmpSrc.left / scale, tmpSrc.top / scale,
+                        tmpSrc.right / scale, tmpSrc.bottom / scale);
+                tmpSrc.offset(-left, -top);
+                canvas.drawBitmap(tiles[i], tmpSrc, tmpDst, paint);
+            }
+        }
+    }
+
+    /**
+     * Bounds of content which was captured and is still stored in allocated tiles.
+     */
+    Rect getCapturedBounds() {
+        return capturedBounds;
+    }
+
+    void setCapturedBounds(Rect bounds) {
+        capturedBounds.set(bounds);
+    }
+
+    /**
+     * Returns all tiles back to the pool.
+     */
+    void release() {
+        for (int i = 0; i < tiles.length; i++) {
+            releaseTile(i);
+        }
+        capturedBounds.setEmpty();
+    }
+
+    private void setupTiles() {
+        scale = fallbackStep >= 2 ? resolution * FALLBACK_SCALE : resolution;
+        tilesConfig = fallbackStep % 2 == 1 ? FALLBACK_CONFIG : config;
+
+        bitmapWidth = width == 0 ? 0 : Math.max(1, Math.round(width * scale));
+        bitmapHeight = height == 0 ? 0 : Math.max(1, Math.round(height * scale));
+
+        tileWidth = bitmapWidth > MAX_BITMAP_SIZE ? TILE_SIZE : bitmapWidth;
+        tileHeight = bitmapHeight > MAX_BITMAP_SIZE ? TILE_SIZE : bitmapHeight;
+
+        columns = tileWidth == 0 ? 0 : (bitmapWidth + tileWidth - 1) / tileWidth;
+        final int rows = tileHeight == 0 ? 0 : (bitmapHeight + tileHeight - 1) / tileHeight;
+
+        if (tiles.length != columns * rows) {
+            tiles = new Bitmap[columns * rows];
+            canvases = new Canvas[columns * rows];
+        }
+    }
+
+    private boolean allocateTiles(Rect bounds) {
+        boolean isChanged = false;
+
+        for (int i = 0; i < tiles.length; i++) {
+            final boolean isNeeded = getTileBounds(i, tmpBounds)
+                    && Rect.intersects(tmpBounds, bounds);
+
+            if (isNeeded && tiles[i] == null) {
+                final int left = (i % columns) * tileWidth;
+                final int top = (i / columns) * tileHeight;
+                final int w = Math.min(tileWidth, bitmapWidth - left);
+                final int h = Math.min(tileHeight, bitmapHeight - top);
+
+                final Bitmap tile = BitmapPool.obtain(w, h, tilesConfig);
+                final Canvas canvas = new Canvas(tile);
+                canvas.translate(-left, -top);
+                canvas.scale(scale, scale);
+
+                tiles[i] = tile;
+                canvases[i] = canvas;
+                isChanged = true;
+            } else if (!isNeeded && tiles[i] != null) {
+                releaseTile(i);
+
+                // Released tile may contain part of captured content
+                if (!capturedBounds.intersect(getKeptBounds(bounds))) {
+                    capturedBounds.setEmpty();
+                }
+                isChanged = true;
+            }
+        }
+
+        return isChanged;
+    }
+
+    private void releaseTile(int index) {
+        if (tiles[index] != null) {
+            BitmapPool.release(tiles[index]);
+            tiles[index] = null;
+            canvases[index] = null;
+        }
+    }
+
+    /**
+     * Computes tile's bounds in content coordinates.
+     */
+    private boolean getTileBounds(int index, Rect bounds) {
+        final int left = (index % columns) * tileWidth;
+        final int top = (index / columns) * tileHeight;
+        bounds.set(
+                (int) (left / scale),
+                (int) (top / scale),
+                (int) Math.ceil(Math.min(left + tileWidth, bitmapWidth) / scale),
+                (int) Math.ceil(Math.min(top + tileHeight, bitmapHeight) / scale));
+        return !bounds.isEmpty();
+    }
+
+    /**
+     * Computes content bounds of all tiles intersecting given bounds.
+     */
+    private Rect getKeptBounds(Rect bounds) {
+        final int fromColumn = (int) (bounds.left * scale) / tileWidth;
+        final int fromRow = (int) (bounds.top * scale) / tileHeight;
+        final int toColumn = (int) Math.ceil(bounds.right * scale / tileWidth);
+        final int toRow = (int) Math.ceil(bounds.bottom * scale / tileHeight);
+
+        tmpBounds.set(
+                (int) Math.ceil(fromColumn * tileWidth / scale),
+                (int) Math.ceil(fromRow * tileHeight / scale),
+                (int) (Math.min(toColumn * tileWidth, bitmapWidth) / scale),
+                (int) (Math.min(toRow * tileHeight, bitmapHeight) / scale));
+        return tmpBounds;
+    }
+
+
+    /**
+     * Draws content into cache canvas.
+     */
+    interface ContentDrawer {
+        void drawContent(Canvas canvas);
+    }
+
+}
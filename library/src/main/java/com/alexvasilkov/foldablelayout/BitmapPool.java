@@ -0,0 +1,171 @@
+package com.alexvasilkov.foldablelayout;
+
+import android.annotation.TargetApi;
+import android.graphics.Bitmap;
+import android.os.Build;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Process-wide pool of cache bitmaps shared by all {@link FoldableItemLayout} instances.
+ * <p/>
+ * Layouts lease cache bitmaps from the pool and return them back when bitmap's size is changed
+ * or when layout is detached from window, so steady-state folding does not allocate anything.
+ * <p/>
+ * Pool is bounded by total bytes count, extra bitmaps are recycled right away. Pooled bitmaps
+ * are only kept while some layout is folding, once all layouts are resting and have released
+ * their caches (see {@link #onFoldStarted()} and {@link #onFoldFinished()}) the pool is cleared.
+ * Should only be used from main thread.
+ */
+final class BitmapPool {
+
+    private static final long MAX_POOL_BYTES = Runtime.getRuntime().maxMemory() / 8L;
+
+    private static final List<Bitmap> pool = new ArrayList<>();
+    private static long poolBytes;
+    private static int foldingCount;
+
+    private BitmapPool() {}
+
+    /**
+     * Returns bitmap of given size and config, either from the pool or newly created one.
+     * Returned bitmap content is undefined.
+     *
+     * @throws OutOfMemoryError If new bitmap cannot be allocated
+     */
+    static Bitmap obtain(int width, int height, Bitmap.Config config) {
+        // Looking for exact match first
+        for (int i = pool.size() - 1; i >= 0; i--) {
+            Bitmap bitmap = pool.get(i);
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height
+                    && bitmap.getConfig() == config) {
+                return removeAt(i);
+            }
+        }
+
+        // Trying to reuse smallest bitmap which is big enough to be reconfigured
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            int index = findReconfigurable(getBytesCount(width, height, config));
+            if (index != -1) {
+                Bitmap bitmap = removeAt(index);
+                reconfigure(bitmap, width, height, config);
+                return bitmap;
+            }
+        }
+
+        try {
+            return Bitmap.createBitmap(width, height, config);
+        } catch (OutOfMemoryError outOfMemoryError) {
+            // Freeing pooled bitmaps and trying once again
+            clear();
+            return Bitmap.createBitmap(width, height, config);
+        }
+    }
+
+    /**
+     * Returns bitmap back to the pool. Bitmap should not be used by caller after that.
+     */
+    static void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+
+        long bytes = getBytesCount(bitmap);
+        if (!bitmap.isMutable() || bytes > MAX_POOL_BYTES) {
+            bitmap.recycle();
+            return;
+        }
+
+        // Evicting oldest bitmaps to fit new one
+        while (poolBytes + bytes > MAX_POOL_BYTES) {
+            removeAt(0).recycle();
+        }
+
+        pool.add(bitmap);
+        poolBytes += bytes;
+    }
+
+    /**
+     * Notifies that one more layout started folding, pooled bitmaps are kept for it.
+     */
+    static void onFoldStarted() {
+        foldingCount++;
+    }
+
+    /**
+     * Notifies that layout finished folding and released its cache. Pool is cleared once no
+     * layouts are folding anymore, so idle pool does not hold bitmaps memory.
+     */
+    static void onFoldFinished() {
+        if (foldingCount > 0 && --foldingCount == 0) {
+            clear();
+        }
+    }
+
+    /**
+     * Recycles all pooled bitmaps.
+     */
+    static void clear() {
+        for (Bitmap bitmap : pool) {
+            bitmap.recycle();
+        }
+        pool.clear();
+        poolBytes = 0L;
+    }
+
+    private static Bitmap removeAt(int index) {
+        Bitmap bitmap = pool.remove(index);
+        poolBytes -= getBytesCount(bitmap);
+        return bitmap;
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static int findReconfigurable(long bytes) {
+        int index = -1;
+        long minBytes = Long.MAX_VALUE;
+        for (int i = 0, size = pool.size(); i < size; i++) {
+            long allocated = pool.get(i).getAllocationByteCount();
+            if (allocated >= bytes && allocated < minBytes) {
+                index = i;
+                minBytes = allocated;
+            }
+        }
+        return index;
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static void reconfigure(Bitmap bitmap, int width, int height, Bitmap.Config config) {
+        bitmap.reconfigure(width, height, config);
+    }
+
+    private static long getBytesCount(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            return getAllocationByteCount(bitmap);
+        } else {
+            return bitmap.getByteCount();
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.KITKAT)
+    private static long getAllocationByteCount(Bitmap bitmap) {
+        return bitmap.getAllocationByteCount();
+    }
+
+    private static long getBytesCount(int width, int height, Bitmap.Config config) {
+        final int bytesPerPixel;
+        switch (config) {
+            case ALPHA_8:
+                bytesPerPixel = 1;
+                break;
+            case RGB_565:
+            case ARGB_4444:
+                bytesPerPixel = 2;
+                break;
+            default:
+                bytesPerPixel = 4;
+        }
+        return (long) width * height * bytesPerPixel;
+    }
+
+}
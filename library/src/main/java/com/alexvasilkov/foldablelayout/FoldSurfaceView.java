@@ -0,0 +1,476 @@
+package com.alexvasilkov.foldablelayout;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Camera;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.SparseArray;
+import android.view.Choreographer;
+import android.view.Gravity;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+import com.alexvasilkov.foldablelayout.shading.FilterFoldShading;
+import com.alexvasilkov.foldablelayout.shading.FoldShading;
+
+/**
+ * Surface placed on top of the window which draws fold animation from items snapshots on a
+ * dedicated render thread, so fold animation stays smooth even if main thread is busy.
+ * Since it is on top of the window, it covers any views overlapping it and ignores clipping and
+ * alpha of parent views.
+ * <p/>
+ * Fold rotation is either set directly (e.g. from touch events) or animated by render thread
+ * itself, see {@link #animateRotation(float, float, long, boolean)}. Surface is cleared when
+ * fold is not active.
+ * <p/>
+ * Snapshots are taken from the shared {@link BitmapPool} on main thread and are returned back
+ * to the pool on main thread once render thread does not need them anymore.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+class FoldSurfaceView extends SurfaceView implements SurfaceHolder.Callback {
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Main thread state
+    private HandlerThread renderThread;
+    private Handler renderHandler;
+    private boolean isSurfaceCreated;
+    private final SparseArray<Bitmap> submittedSnapshots = new SparseArray<>();
+
+    // State shared between threads, guarded by lock
+    private final Object lock = new Object();
+    private boolean isActive;
+    private float rotation;
+    private boolean isAnimating;
+    private float animationFrom;
+    private float animationTo;
+    private long animationStart;
+    private long animationDuration;
+    private boolean isAnimationLinear;
+    private FilterFoldShading shading;
+
+    // Surface state, guarded by surface lock
+    private final Object surfaceLock = new Object();
+    private boolean isSurfaceReady;
+    private int surfaceWidth;
+    private int surfaceHeight;
+
+    // Render thread state
+    private Choreographer choreographer;
+    private boolean isFrameScheduled;
+    private boolean isCleared;
+    private final SparseArray<Bitmap> snapshots = new SparseArray<>();
+    private final Camera camera = new Camera();
+    private final Matrix matrix = new Matrix();
+    private final Rect partBounds = new Rect();
+    private final Paint bitmapPaint;
+
+    private final Runnable requestFrameTask = new Runnable() {
+        @Override
+        public void run() {
+            requestFrame();
+        }
+    };
+
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            isFrameScheduled = false;
+            drawFrame();
+        }
+    };
+
+    FoldSurfaceView(Context context) {
+        super(context);
+
+        setZOrderOnTop(true);
+        getHolder().setFormat(PixelFormat.TRANSLUCENT);
+        getHolder().addCallback(this);
+
+        camera.setLocation(0f, 0f, -FoldableItemLayout.CAMERA_DISTANCE);
+
+        bitmapPaint = new Paint();
+        bitmapPaint.setDither(true);
+        bitmapPaint.setFilterBitmap(true);
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+
+        renderThread = new HandlerThread("FoldableLayout-render", Process.THREAD_PRIORITY_DISPLAY);
+        renderThread.start();
+        renderHandler = new Handler(renderThread.getLooper());
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+
+        submittedSnapshots.clear();
+        renderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                releaseSnapshots();
+                if (choreographer != null) {
+                    choreographer.removeFrameCallback(frameCallback);
+                }
+            }
+        });
+        quit(renderThread);
+        renderThread = null;
+        renderHandler = null;
+    }
+
+    private static void quit(HandlerThread thread) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            quitSafely(thread); // Letting posted tasks to return snapshots back to the pool
+        } else {
+            thread.quit();
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static void quitSafely(HandlerThread thread) {
+        thread.quitSafely();
+    }
+
+    /**
+     * Whether surface can be used to draw fold.
+     */
+    boolean isReady() {
+        return isSurfaceCreated && renderHandler != null;
+    }
+
+    boolean isActive() {
+        synchronized (lock) {
+            return isActive;
+        }
+    }
+
+    /**
+     * Sets whether fold should be drawn on surface, otherwise surface is cleared.
+     */
+    void setActive(boolean isActive) {
+        synchronized (lock) {
+            if (this.isActive == isActive) {
+                return;
+            }
+            this.isActive = isActive;
+        }
+        postRequestFrame();
+    }
+
+    /**
+     * Sets fold rotation to draw, running animation is stopped.
+     */
+    void setFoldRotation(float rotation) {
+        synchronized (lock) {
+            if (this.rotation == rotation && !isAnimating) {
+                return;
+            }
+            this.rotation = rotation;
+            isAnimating = false;
+        }
+        postRequestFrame();
+    }
+
+    /**
+     * Starts fold rotation animation which is run by render thread. Interpolation is either linear
+     * or the same as the default interpolation of {@link android.animation.ObjectAnimator}.
+     */
+    void animateRotation(float from, float to, long duration, boolean isLinear) {
+        synchronized (lock) {
+            rotation = duration > 0L ? from : to;
+            animationFrom = from;
+            animationTo = to;
+            animationStart = SystemClock.uptimeMillis();
+            animationDuration = duration;
+            isAnimationLinear = isLinear;
+            isAnimating = duration > 0L;
+        }
+        postRequestFrame();
+    }
+
+    /**
+     * Sets shading to apply to folding parts.
+     * <p/>
+     * Shading instance is shared with item layouts drawing on main thread and shadings are not
+     * thread-safe in general, so only immutable color filters returned by
+     * {@link FilterFoldShading#getColorFilter(float, int)} are applied on render thread. Other
+     * shadings are not drawn by render thread.
+     */
+    void setFoldShading(FoldShading shading) {
+        synchronized (lock) {
+            this.shading = shading instanceof FilterFoldShading
+                    ? (FilterFoldShading) shading : null;
+        }
+        postRequestFrame();
+    }
+
+    boolean hasSnapshot(int position) {
+        return submittedSnapshots.get(position) != null;
+    }
+
+    /**
+     * Passes snapshot of item at given position to render thread. Snapshot should not be used by
+     * caller after that.
+     */
+    void setSnapshot(final int position, final Bitmap snapshot) {
+        if (renderHandler == null) {
+            BitmapPool.release(snapshot);
+            return;
+        }
+
+        submittedSnapshots.put(position, snapshot);
+        renderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap old = snapshots.get(position);
+                snapshots.put(position, snapshot);
+                releaseOnMainThread(old);
+                requestFrame();
+            }
+        });
+    }
+
+    void removeSnapshot(final int position) {
+        if (renderHandler == null || submittedSnapshots.get(position) == null) {
+            return;
+        }
+
+        submittedSnapshots.remove(position);
+        renderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap old = snapshots.get(position);
+                snapshots.remove(position);
+                releaseOnMainThread(old);
+            }
+        });
+    }
+
+    void clearSnapshots() {
+        if (renderHandler == null || submittedSnapshots.size() == 0) {
+            return;
+        }
+
+        submittedSnapshots.clear();
+        renderHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                releaseSnapshots();
+            }
+        });
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        isSurfaceCreated = true;
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        synchronized (surfaceLock) {
+            isSurfaceReady = true;
+            surfaceWidth = width;
+            surfaceHeight = height;
+        }
+        isCleared = false;
+        postRequestFrame();
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        isSurfaceCreated = false;
+        // Waiting for current frame to be finished, surface should not be used after that
+        synchronized (surfaceLock) {
+            isSurfaceReady = false;
+        }
+    }
+
+    private void postRequestFrame() {
+        if (renderHandler != null) {
+            renderHandler.post(requestFrameTask);
+        }
+    }
+
+    private void releaseOnMainThread(final Bitmap bitmap) {
+        if (bitmap != null) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    BitmapPool.release(bitmap);
+                }
+            });
+        }
+    }
+
+    // Render thread methods
+
+    private void releaseSnapshots() {
+        for (int i = 0, size = snapshots.size(); i < size; i++) {
+            releaseOnMainThread(snapshots.valueAt(i));
+        }
+        snapshots.clear();
+    }
+
+    private void requestFrame() {
+        if (choreographer == null) {
+            choreographer = Choreographer.getInstance(); // Render thread's choreographer
+        }
+        if (!isFrameScheduled) {
+            isFrameScheduled = true;
+            choreographer.postFrameCallback(frameCallback);
+        }
+    }
+
+    private void drawFrame() {
+        final boolean isActive;
+        final boolean isAnimating;
+        final float rotation;
+        final FilterFoldShading shading;
+
+        synchronized (lock) {
+            updateAnimation();
+            isActive = this.isActive;
+            isAnimating = this.isAnimating;
+            rotation = this.rotation;
+            shading = this.shading;
+        }
+
+        if (!isActive && isCleared) {
+            return; // Nothing to draw
+        }
+
+        synchronized (surfaceLock) {
+            if (!isSurfaceReady) {
+                return;
+            }
+
+            final SurfaceHolder holder = getHolder();
+            final Canvas canvas = lockCanvas(holder);
+            if (canvas == null) {
+                return;
+            }
+
+            canvas.drawColor(0, PorterDuff.Mode.CLEAR);
+            if (isActive) {
+                drawFold(canvas, rotation, shading);
+            }
+            holder.getSurface().unlockCanvasAndPost(canvas);
+            isCleared = !isActive;
+        }
+
+        if (isAnimating) {
+            requestFrame();
+        }
+    }
+
+    private void updateAnimation() {
+        if (!isAnimating) {
+            return;
+        }
+
+        float state = (SystemClock.uptimeMillis() - animationStart) / (float) animationDuration;
+        if (state >= 1f) {
+            state = 1f;
+            isAnimating = false;
+        }
+        if (!isAnimationLinear) {
+            // Same as AccelerateDecelerateInterpolator
+            state = (float) (Math.cos((state + 1f) * Math.PI) / 2f) + 0.5f;
+        }
+        rotation = animationFrom + (animationTo - animationFrom) * state;
+    }
+
+    private static Canvas lockCanvas(SurfaceHolder holder) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            return lockHardwareCanvas(holder);
+        } else {
+            return holder.getSurface().lockCanvas(null);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.M)
+    private static Canvas lockHardwareCanvas(SurfaceHolder holder) {
+        return holder.getSurface().lockHardwareCanvas();
+    }
+
+    /**
+     * Draws back and front items same as {@link FoldableListLayout} does.
+     */
+    private void drawFold(Canvas canvas, float rotation, FilterFoldShading shading) {
+        final int firstPosition = (int) (rotation / 180f);
+        final float localRotation = rotation % 180f;
+
+        if (localRotation <= 90f) {
+            drawItem(canvas, firstPosition + 1, localRotation - 180f, shading);
+            drawItem(canvas, firstPosition, localRotation, shading);
+        } else {
+            drawItem(canvas, firstPosition, localRotation, shading);
+            drawItem(canvas, firstPosition + 1, localRotation - 180f, shading);
+        }
+    }
+
+    private void drawItem(Canvas canvas, int position, float rotation,
+            FilterFoldShading shading) {
+        final Bitmap snapshot = snapshots.get(position);
+        if (snapshot == null) {
+            return; // Snapshot is not captured yet
+        }
+
+        final float partPosition = FoldableItemLayout.toPartPosition(rotation);
+
+        canvas.save();
+        canvas.scale(surfaceWidth / (float) snapshot.getWidth(),
+                surfaceHeight / (float) snapshot.getHeight());
+        drawPart(canvas, snapshot, partPosition, Gravity.TOP, shading);
+        drawPart(canvas, snapshot, partPosition, Gravity.BOTTOM, shading);
+        canvas.restore();
+    }
+
+    private void drawPart(Canvas canvas, Bitmap snapshot, float position, int gravity,
+            FilterFoldShading shading) {
+        if (!FoldableItemLayout.isPartVisible(position, gravity)) {
+            return;
+        }
+
+        final int width = snapshot.getWidth();
+        final int height = snapshot.getHeight();
+
+        if (gravity == Gravity.TOP) {
+            partBounds.set(0, 0, width, (int) (0.5f * height + 0.5f));
+        } else {
+            partBounds.set(0, (int) (0.5f * height - 0.5f), width, height);
+        }
+
+        // Same transformation as applied to rotating part view, pivoted at view's center
+        camera.save();
+        camera.rotateX(FoldableItemLayout.getPartRotationX(position, gravity));
+        camera.getMatrix(matrix);
+        camera.restore();
+        matrix.preTranslate(-0.5f * width, -0.5f * height);
+        matrix.postTranslate(0.5f * width, 0.5f * height);
+
+        canvas.save();
+        canvas.concat(matrix);
+        bitmapPaint.setColorFilter(
+                shading == null ? null : shading.getColorFilter(position, gravity));
+        canvas.drawBitmap(snapshot, partBounds, partBounds, bitmapPaint);
+        canvas.restore();
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.alexvasilkov.foldablelayout;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Adapter for {@link FoldableListLayout} based on view holders, similar to RecyclerView's adapter.
+ * <p/>
+ * Unlike {@link android.widget.BaseAdapter} it can notify about changes of particular items, see
+ * {@link #notifyItemChanged(int)}, {@link #notifyItemInserted(int)},
+ * {@link #notifyItemRemoved(int)} and {@link #notifyItemMoved(int, int)}, so that only affected
+ * items are rebound. Use {@link FoldableListLayout#setFoldableAdapter(FoldableAdapter)} to set it.
+ */
+public abstract class FoldableAdapter<VH extends FoldableAdapter.ViewHolder> {
+
+    public static final long NO_ID = -1L;
+
+    private final List<Observer> observers = new ArrayList<>();
+    private boolean hasStableIds;
+
+    public abstract int getItemCount();
+
+    public abstract VH onCreateViewHolder(ViewGroup parent, int viewType);
+
+    public abstract void onBindViewHolder(VH holder, int position);
+
+    /**
+     * Returns view type of item at given position, holders are only reused among items of the
+     * same type. Returned value should be non-negative.
+     */
+    public int getItemViewType(int position) {
+        return 0;
+    }
+
+    /**
+     * Returns stable id of item at given position, see {@link #setHasStableIds(boolean)}.
+     */
+    public long getItemId(int position) {
+        return NO_ID;
+    }
+
+    /**
+     * Sets whether items have stable ids returned from {@link #getItemId(int)}. In this case
+     * bound items which ids were not changed are kept on {@link #notifyDataSetChanged()}.
+     */
+    @SuppressWarnings("unused") // Public API
+    public void setHasStableIds(boolean hasStableIds) {
+        this.hasStableIds = hasStableIds;
+    }
+
+    public boolean hasStableIds() {
+        return hasStableIds;
+    }
+
+    @SuppressWarnings("unused") // Public API
+    public void notifyDataSetChanged() {
+        for (int i = observers.size() - 1; i >= 0; i--) {
+            observers.get(i).onChanged();
+        }
+    }
+
+    @SuppressWarnings("unused") // Public API
+    public void notifyItemChanged(int position) {
+        notifyItemRangeChanged(position, 1);
+    }
+
+    public void notifyItemRangeChanged(int positionStart, int itemCount) {
+        for (int i = observers.size() - 1; i >= 0; i--) {
+            observers.get(i).onItemRangeChanged(positionStart, itemCount);
+        }
+    }
+
+    @SuppressWarnings("unused") // Public API
+    public void notifyItemInserted(int position) {
+        notifyItemRangeInserted(position, 1);
+    }
+
+    public void notifyItemRangeInserted(int positionStart, int itemCount) {
+        for (int i = observers.size() - 1; i >= 0; i--) {
+            observers.get(i).onItemRangeInserted(positionStart, itemCount);
+        }
+    }
+
+    @SuppressWarnings("unused") // Public API
+    public void notifyItemRemoved(int position) {
+        notifyItemRangeRemoved(position, 1);
+    }
+
+    public void notifyItemRangeRemoved(int positionStart, int itemCount) {
+        for (int i = observers.size() - 1; i >= 0; i--) {
+            observers.get(i).onItemRangeRemoved(positionStart, itemCount);
+        }
+    }
+
+    @SuppressWarnings("unused") // Public API
+    public void notifyItemMoved(int fromPosition, int toPosition) {
+        for (int i = observers.size() - 1; i >= 0; i--) {
+            observers.get(i).onItemMoved(fromPosition, toPosition);
+        }
+    }
+
+    void registerObserver(Observer observer) {
+        observers.add(observer);
+    }
+
+    void unregisterObserver(Observer observer) {
+        observers.remove(observer);
+    }
+
+    ViewHolder createViewHolder(ViewGroup parent, int viewType) {
+        final ViewHolder holder = onCreateViewHolder(parent, viewType);
+        holder.itemView.setTag(R.id.foldable_view_holder, holder);
+        return holder;
+    }
+
+    @SuppressWarnings("unchecked")
+    void bindViewHolder(ViewHolder holder, int position) {
+        holder.position = position;
+        onBindViewHolder((VH) holder, position);
+    }
+
+
+    public abstract static class ViewHolder {
+        public final View itemView;
+        int position = -1;
+
+        public ViewHolder(View itemView) {
+            if (itemView == null) {
+                throw new IllegalArgumentException("Item view cannot be null");
+            }
+            this.itemView = itemView;
+        }
+
+        /**
+         * Returns adapter position of the item this holder was last bound to.
+         */
+        @SuppressWarnings("unused") // Public API
+        public int getPosition() {
+            return position;
+        }
+
+        static ViewHolder from(View view) {
+            return view == null ? null : (ViewHolder) view.getTag(R.id.foldable_view_holder);
+        }
+    }
+
+    interface Observer {
+        void onChanged();
+
+        void onItemRangeChanged(int positionStart, int itemCount);
+
+        void onItemRangeInserted(int positionStart, int itemCount);
+
+        void onItemRangeRemoved(int positionStart, int itemCount);
+
+        void onItemMoved(int fromPosition, int toPosition);
+    }
+
+}
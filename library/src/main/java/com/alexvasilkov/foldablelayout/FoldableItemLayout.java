@@ -3,14 +3,19 @@ package com.alexvasilkov.foldablelayout;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.graphics.Bitmap;
+import android.graphics.Camera;
 import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
 import android.graphics.Paint;
-import android.graphics.PorterDuff;
 import android.graphics.Rect;
+import android.graphics.RectF;
 import android.view.Gravity;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.widget.Adapter;
 import android.widget.FrameLayout;
 
 import com.alexvasilkov.foldablelayout.shading.FoldShading;
@@ -21,10 +26,15 @@ import com.alexvasilkov.foldablelayout.shading.FoldShading;
  */
 class FoldableItemLayout extends FrameLayout {
 
-    private static final int CAMERA_DISTANCE = 48;
-    private static final float CAMERA_DISTANCE_MAGIC_FACTOR = 8f / CAMERA_DISTANCE;
+    static final int CAMERA_DISTANCE = 48;
+    static final float CAMERA_DISTANCE_MAGIC_FACTOR = 8f / CAMERA_DISTANCE;
+
+    private static final float CACHE_RESOLUTION_STEP = 0.25f;
+    private static final float LOW_QUALITY_CACHE_RESOLUTION = 0.5f;
 
     private boolean isAutoScaleEnabled;
+    private boolean isSingleViewRendering;
+    private AccordionPanels accordion;
 
     private final BaseLayout baseLayout;
     private final PartView topPart;
@@ -32,10 +42,36 @@ class FoldableItemLayout extends FrameLayout {
 
     private int width;
     private int height;
-    private Bitmap cacheBitmap;
+    private BitmapCache cache = new BitmapCache();
+    private boolean isCacheApplied;
+    private AsyncCapture asyncCapture;
+    private Bitmap.Config cacheBitmapConfig = Bitmap.Config.ARGB_8888;
+    private float cacheResolution = 1f;
+    private float maxCacheResolution = 1f;
+    private int captureMode = FoldableListLayout.CAPTURE_MODE_AUTO;
+    private final Rect captureBounds = new Rect();
+    private final Rect onScreenBounds = new Rect();
+
+    private long cacheReleaseDelay = -1L;
+    private boolean isCacheReleaseScheduled;
+    private boolean isFoldingWithPool;
+    private final Runnable cacheReleaseTask = new Runnable() {
+        @Override
+        public void run() {
+            isCacheReleaseScheduled = false;
+            releaseCache();
+        }
+    };
 
     private boolean isInTransformation;
 
+    private int viewType = Adapter.IGNORE_ITEM_VIEW_TYPE;
+    private long itemId;
+    private boolean isItemChanged;
+
+    private FoldShading foldShading;
+    private int qualityLevel = FoldableListLayout.QUALITY_HIGH;
+
     private float foldRotation;
     private float scale = 1f;
     private float scaleFactor = 1f;
@@ -59,43 +95,140 @@ class FoldableItemLayout extends FrameLayout {
 
     @Override
     protected void dispatchDraw(Canvas canvas) {
-        if (foldRotation != 0f) {
-            ensureCacheBitmap();
+        if (isInTransformation) {
+            width = getWidth();
+            height = getHeight();
+
+            if (isBitmapCaptureUsed(canvas)) {
+                cache.setup(width, height, cacheResolution, cacheBitmapConfig);
+                updateCaptureBounds(canvas);
+            } else {
+                releaseCacheBitmaps(); // Part views will draw content directly
+            }
         }
 
         super.dispatchDraw(canvas);
+
+        if (isSingleViewRendering) {
+            // Parts are not attached as children, drawing them on top of base layout
+            topPart.drawTransformed(canvas);
+            bottomPart.drawTransformed(canvas);
+        }
+
+        if (accordion != null && isInTransformation) {
+            accordion.draw(canvas, getWidth(), getHeight(), isCacheApplied ? cache : null,
+                    baseLayout, getAppliedFoldShading());
+        }
     }
 
-    private void ensureCacheBitmap() {
-        width = getWidth();
-        height = getHeight();
+    @Override
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+        if (isSingleViewRendering) {
+            topPart.layout(0, 0, width, height);
+            bottomPart.layout(0, 0, width, height);
+        }
+    }
 
-        // Check if correct cache bitmap is already created
-        if (cacheBitmap != null && cacheBitmap.getWidth() == width
-                && cacheBitmap.getHeight() == height) {
-            return;
+    private boolean isBitmapCaptureUsed(Canvas canvas) {
+        switch (captureMode) {
+            case FoldableListLayout.CAPTURE_MODE_BITMAP:
+                return true;
+            case FoldableListLayout.CAPTURE_MODE_DIRECT:
+                return false;
+            default:
+                // Hardware accelerated canvas will record content's display list into part views,
+                // which is much cheaper than software rendering into cache bitmap
+                return !canvas.isHardwareAccelerated();
+        }
+    }
+
+    /**
+     * Only visible parts of cache bitmap should be captured.
+     */
+    private void updateCaptureBounds(Canvas canvas) {
+        // Tiled cache is only kept for on-screen area
+        final boolean isOnScreenOnly = cache.isTiled();
+        if (isOnScreenOnly && !getLocalVisibleRect(onScreenBounds)) {
+            onScreenBounds.setEmpty();
         }
 
-        if (cacheBitmap != null) {
-            cacheBitmap.recycle();
-            cacheBitmap = null;
+        captureBounds.setEmpty();
+        if (accordion != null) {
+            accordion.unionDrawnBounds(captureBounds, width, height);
+        } else {
+            topPart.unionDrawnBounds(captureBounds, isOnScreenOnly ? onScreenBounds : null);
+            bottomPart.unionDrawnBounds(captureBounds, isOnScreenOnly ? onScreenBounds : null);
         }
 
-        if (width != 0 && height != 0) {
-            try {
-                cacheBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-            } catch (OutOfMemoryError outOfMemoryError) {
-                cacheBitmap = null;
+        final boolean isTilesChanged = cache.ensureTiles(captureBounds);
+        if (cache.isFailed()) {
+            // Not enough memory even for lowest quality cache, drawing content directly
+            applyCache(null);
+            return;
+        }
+
+        applyCache(cache);
+        if (isTilesChanged) {
+            topPart.invalidate();
+            bottomPart.invalidate();
+            if (accordion != null) {
+                invalidate();
             }
         }
 
-        applyCacheBitmap(cacheBitmap);
+        baseLayout.setCaptureBounds(captureBounds);
+
+        // With hardware acceleration base layout will only be drawn if it is invalidated
+        if (canvas.isHardwareAccelerated() && !baseLayout.isCaptureUpToDate()) {
+            baseLayout.invalidate();
+        }
     }
 
-    private void applyCacheBitmap(Bitmap bitmap) {
-        baseLayout.setCacheCanvas(bitmap == null ? null : new Canvas(bitmap));
-        topPart.setCacheBitmap(bitmap);
-        bottomPart.setCacheBitmap(bitmap);
+    private void applyCache(BitmapCache cache) {
+        if (accordion != null && isCacheApplied != (cache != null)) {
+            invalidate(); // Accordion panels are drawn by this layout
+        }
+        isCacheApplied = cache != null;
+        baseLayout.setCache(cache);
+        topPart.setCache(cache);
+        bottomPart.setCache(cache);
+    }
+
+    /**
+     * Returns cache bitmaps back to the shared pool, they will be reacquired on next fold.
+     */
+    public void releaseCache() {
+        releaseCacheBitmaps();
+
+        if (isFoldingWithPool) {
+            isFoldingWithPool = false;
+            BitmapPool.onFoldFinished();
+        }
+    }
+
+    private void releaseCacheBitmaps() {
+        cache.release();
+        if (asyncCapture != null) {
+            asyncCapture.release();
+        }
+        applyCache(null);
+    }
+
+    private BitmapCache onAsyncCaptured(BitmapCache newCache) {
+        final BitmapCache oldCache = cache;
+        cache = newCache;
+
+        if (isCacheApplied) {
+            applyCache(cache);
+            topPart.invalidate();
+            bottomPart.invalidate();
+            if (accordion != null) {
+                invalidate();
+            }
+            baseLayout.onAsyncCaptured();
+        }
+        return oldCache;
     }
 
     /**
@@ -108,6 +241,13 @@ class FoldableItemLayout extends FrameLayout {
         bottomPart.applyFoldRotation(rotation);
 
         setInTransformation(rotation != 0f);
+        updateCacheRelease(rotation % 180f == 0f);
+
+        if (rotation % 180f != 0f && !isFoldingWithPool) {
+            // Pool is kept until cache is released
+            isFoldingWithPool = true;
+            BitmapPool.onFoldStarted();
+        }
 
         scaleFactor = 1f;
 
@@ -120,6 +260,24 @@ class FoldableItemLayout extends FrameLayout {
         }
     }
 
+    /**
+     * Schedules cache release once rotation is resting on multiple of 180 degrees, scheduled
+     * release is canceled as soon as fold is resumed.
+     */
+    private void updateCacheRelease(boolean isResting) {
+        if (isResting && !isCacheReleaseScheduled && cacheReleaseDelay >= 0L) {
+            isCacheReleaseScheduled = true;
+            postDelayed(cacheReleaseTask, cacheReleaseDelay);
+        } else if (!isResting && isCacheReleaseScheduled) {
+            cancelCacheRelease();
+        }
+    }
+
+    private void cancelCacheRelease() {
+        isCacheReleaseScheduled = false;
+        removeCallbacks(cacheReleaseTask);
+    }
+
     public void setScale(float scale) {
         this.scale = scale;
 
@@ -127,10 +285,25 @@ class FoldableItemLayout extends FrameLayout {
         final float scaleY = scale * scaleFactor * scaleFactorY;
 
         baseLayout.setScaleY(scaleFactorY);
-        topPart.setScaleX(scaleX);
-        topPart.setScaleY(scaleY);
-        bottomPart.setScaleX(scaleX);
-        bottomPart.setScaleY(scaleY);
+        topPart.applyScale(scaleX, scaleY);
+        bottomPart.applyScale(scaleX, scaleY);
+
+        updateCacheResolution(Math.max(scaleX, scaleY));
+    }
+
+    /**
+     * There is no need to render cache bitmap in full resolution if parts are scaled down.
+     * Resolution is quantized and only reduced when it is more than one step lower than current
+     * resolution, to avoid recreating cache bitmap on every frame.
+     */
+    private void updateCacheResolution(float partsScale) {
+        float steps = (float) Math.ceil(
+                Math.min(partsScale, maxCacheResolution) / CACHE_RESOLUTION_STEP);
+        float resolution = Math.max(1f, steps) * CACHE_RESOLUTION_STEP;
+
+        if (resolution > cacheResolution || resolution < cacheResolution - CACHE_RESOLUTION_STEP) {
+            cacheResolution = resolution; // Cache bitmap will be recreated on next draw
+        }
     }
 
     public void setScaleFactorY(float scaleFactorY) {
@@ -154,37 +327,285 @@ class FoldableItemLayout extends FrameLayout {
         this.isInTransformation = isInTransformation;
 
         baseLayout.setDrawToCache(isInTransformation);
-        topPart.setVisibility(isInTransformation ? VISIBLE : INVISIBLE);
-        bottomPart.setVisibility(isInTransformation ? VISIBLE : INVISIBLE);
+        applyPartsVisibility();
+    }
+
+    private void applyPartsVisibility() {
+        // Parts are not used in accordion mode
+        final boolean isVisible = isInTransformation && accordion == null;
+        topPart.setVisibility(isVisible ? VISIBLE : INVISIBLE);
+        bottomPart.setVisibility(isVisible ? VISIBLE : INVISIBLE);
+    }
+
+    /**
+     * Sets count of panels to split content into, folding as an accordion. Count less than 2
+     * switches back to regular fold with two parts.
+     */
+    public void setAccordionPanels(int count) {
+        if (count < 2) {
+            accordion = null;
+        } else if (accordion == null) {
+            accordion = new AccordionPanels(count);
+            accordion.setBitmapFiltering(qualityLevel < FoldableListLayout.QUALITY_MEDIUM);
+        } else {
+            accordion.setCount(count);
+        }
+        applyPartsVisibility();
+        invalidate();
+    }
+
+    /**
+     * Sets accordion fold state from 0 (unfolded) to 1 (fully folded).
+     * Only applies if accordion panels are set, see {@link #setAccordionPanels(int)}.
+     */
+    public void setAccordionFold(float fold) {
+        if (accordion == null) {
+            return;
+        }
+        accordion.setFold(fold);
+        setInTransformation(fold != 0f);
+        updateCacheRelease(fold == 0f);
+        invalidate();
     }
 
     public void setAutoScaleEnabled(boolean isAutoScaleEnabled) {
         this.isAutoScaleEnabled = isAutoScaleEnabled;
     }
 
+    /**
+     * Sets whether both parts should be drawn by this layout itself in a single pass instead of
+     * being drawn as separate child views.
+     */
+    public void setSingleViewRenderingEnabled(boolean isEnabled) {
+        if (isSingleViewRendering == isEnabled) {
+            return;
+        }
+        isSingleViewRendering = isEnabled;
+
+        if (isEnabled) {
+            removeView(topPart);
+            removeView(bottomPart);
+            topPart.layout(0, 0, getWidth(), getHeight());
+            bottomPart.layout(0, 0, getWidth(), getHeight());
+        } else {
+            final int matchParent = LayoutParams.MATCH_PARENT;
+            addView(topPart, new LayoutParams(matchParent, matchParent));
+            addView(bottomPart, new LayoutParams(matchParent, matchParent));
+        }
+
+        topPart.setDetached(isEnabled);
+        bottomPart.setDetached(isEnabled);
+        invalidate();
+    }
+
+    /**
+     * Sets whether content should be captured only once when fold starts and then recaptured
+     * only if it is invalidated.
+     */
+    public void setFrozenSnapshotEnabled(boolean isFrozenSnapshotEnabled) {
+        baseLayout.setFrozenSnapshot(isFrozenSnapshotEnabled);
+    }
+
+    /**
+     * Sets whether content should be recorded on main thread and rendered into cache bitmap
+     * on background thread.
+     */
+    public void setAsyncCaptureEnabled(boolean isAsyncCaptureEnabled) {
+        if (isAsyncCaptureEnabled && asyncCapture == null) {
+            asyncCapture = new AsyncCapture(new AsyncCapture.Listener() {
+                @Override
+                public BitmapCache onCaptured(BitmapCache cache) {
+                    return onAsyncCaptured(cache);
+                }
+            });
+        } else if (!isAsyncCaptureEnabled && asyncCapture != null) {
+            asyncCapture.release();
+            asyncCapture = null;
+        }
+        baseLayout.setAsyncCapture(asyncCapture);
+    }
+
+    /**
+     * Sets delay in milliseconds after which cache is released once fold is resting.
+     * Negative value disables idle release.
+     */
+    public void setCacheReleaseDelay(long delay) {
+        if (cacheReleaseDelay != delay) {
+            cacheReleaseDelay = delay;
+            cancelCacheRelease();
+            updateCacheRelease(foldRotation % 180f == 0f);
+        }
+    }
+
+    /**
+     * Sets preferred config of cache bitmap. {@link Bitmap.Config#RGB_565} can be used for
+     * opaque content to reduce memory usage.
+     */
+    public void setCacheBitmapConfig(Bitmap.Config config) {
+        if (cacheBitmapConfig != config) {
+            cacheBitmapConfig = config; // Cache bitmap will be recreated on next draw
+            invalidate();
+        }
+    }
+
+    /**
+     * Sets how content is captured during fold, see {@link FoldableListLayout#setCaptureMode(int)}.
+     */
+    public void setCaptureMode(int captureMode) {
+        if (this.captureMode != captureMode) {
+            this.captureMode = captureMode;
+            invalidate();
+        }
+    }
+
+    /**
+     * Draws current content into new bitmap taken from the shared pool.
+     * Returns null if layout is not laid out yet or if there is not enough memory.
+     */
+    Bitmap captureSnapshot() {
+        if (getWidth() == 0 || getHeight() == 0) {
+            return null;
+        }
+        try {
+            final Bitmap snapshot = BitmapPool.obtain(getWidth(), getHeight(), cacheBitmapConfig);
+            snapshot.eraseColor(Color.TRANSPARENT);
+            baseLayout.drawContent(new Canvas(snapshot));
+            return snapshot;
+        } catch (OutOfMemoryError outOfMemoryError) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether layout will not draw anything since both parts are rotated out of view.
+     */
+    public boolean isFullyHidden() {
+        return isInTransformation
+                && topPart.getVisibility() != VISIBLE && bottomPart.getVisibility() != VISIBLE;
+    }
+
     public FrameLayout getBaseLayout() {
         return baseLayout;
     }
 
+    /**
+     * View type of adapter view currently added to base layout, used for views recycling.
+     */
+    public int getViewType() {
+        return viewType;
+    }
+
+    public void setViewType(int viewType) {
+        this.viewType = viewType;
+    }
+
+    /**
+     * Adapter item id of currently bound item, used to keep layouts bound when adapter data is
+     * changed and adapter has stable ids.
+     */
+    public long getItemId() {
+        return itemId;
+    }
+
+    public void setItemId(long itemId) {
+        this.itemId = itemId;
+    }
+
+    /**
+     * Whether bound adapter item was changed and should be rebound.
+     */
+    public boolean isItemChanged() {
+        return isItemChanged;
+    }
+
+    public void setItemChanged(boolean isItemChanged) {
+        this.isItemChanged = isItemChanged;
+    }
+
     public void setLayoutVisibleBounds(Rect visibleBounds) {
         topPart.setVisibleBounds(visibleBounds);
         bottomPart.setVisibleBounds(visibleBounds);
     }
 
     public void setFoldShading(FoldShading shading) {
-        topPart.setFoldShading(shading);
-        bottomPart.setFoldShading(shading);
+        foldShading = shading;
+        applyFoldShading();
+    }
+
+    private void applyFoldShading() {
+        topPart.setFoldShading(getAppliedFoldShading());
+        bottomPart.setFoldShading(getAppliedFoldShading());
+        invalidate();
+    }
+
+    private FoldShading getAppliedFoldShading() {
+        return qualityLevel < FoldableListLayout.QUALITY_LOWEST ? foldShading : null;
+    }
+
+    /**
+     * Sets rendering quality level, see {@link FoldableListLayout#QUALITY_HIGH} and others.
+     */
+    public void setQualityLevel(int level) {
+        if (qualityLevel == level) {
+            return;
+        }
+        qualityLevel = level;
+
+        final boolean isFiltering = level < FoldableListLayout.QUALITY_MEDIUM;
+        topPart.setBitmapFiltering(isFiltering);
+        bottomPart.setBitmapFiltering(isFiltering);
+        if (accordion != null) {
+            accordion.setBitmapFiltering(isFiltering);
+        }
+
+        maxCacheResolution = level < FoldableListLayout.QUALITY_LOW
+                ? 1f : LOW_QUALITY_CACHE_RESOLUTION;
+        setScale(scale); // Updating cache resolution
+
+        applyFoldShading();
     }
 
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
 
-        // Helping GC to faster clean up bitmap memory.
+        // Returning bitmaps to the shared pool, they will either be reused by other layouts or
+        // recycled to help GC to faster clean up bitmap memory.
         // See issue #10: https://github.com/alexvasilkov/FoldableLayout/issues/10.
-        if (cacheBitmap != null) {
-            cacheBitmap.recycle();
-            applyCacheBitmap(cacheBitmap = null);
+        cancelCacheRelease();
+        releaseCache();
+    }
+
+    /**
+     * Converts fold rotation into part's position within (-180; 180] range.
+     */
+    static float toPartPosition(float rotation) {
+        float position = rotation;
+        while (position < 0f) {
+            position += 360f;
+        }
+        position %= 360f;
+        if (position > 180f) {
+            position -= 360f; // Now position is within (-180; 180]
+        }
+        return position;
+    }
+
+    static boolean isPartVisible(float position, int gravity) {
+        if (gravity == Gravity.TOP) {
+            return position > -90f && position != 180f; // (-180; -90] || {180} - Will not show
+        } else {
+            return position < 90f; // [90; 180] - Will not show
+        }
+    }
+
+    static float getPartRotationX(float position, int gravity) {
+        if (gravity == Gravity.TOP) {
+            // (-90; 0) - Applying rotation, [0; 180) - Holding still
+            return position > -90f && position < 0f ? position : 0f;
+        } else {
+            // (0; 90) - Applying rotation, (-180; 0] - Holding still
+            return position > 0f && position < 90f ? position : 0f;
         }
     }
 
@@ -192,11 +613,22 @@ class FoldableItemLayout extends FrameLayout {
      * View holder layout that can draw itself into given canvas.
      */
     @SuppressLint("ViewConstructor")
-    private static class BaseLayout extends FrameLayout {
+    private static class BaseLayout extends FrameLayout implements BitmapCache.ContentDrawer {
 
-        private Canvas cacheCanvas;
+        private BitmapCache cache;
         private boolean isDrawToCache;
 
+        private boolean isFrozenSnapshot;
+        private boolean isCacheValid;
+
+        private AsyncCapture asyncCapture;
+        private boolean isAsyncCapturePending;
+
+        private final Rect captureBounds = new Rect();
+        private final Rect captureRegion = new Rect();
+        private final Rect dirtyBounds = new Rect();
+        private final Rect childDirtyBounds = new Rect();
+
         BaseLayout(FoldableItemLayout layout) {
             super(layout.getContext());
 
@@ -209,26 +641,142 @@ class FoldableItemLayout extends FrameLayout {
         @Override
         public void draw(Canvas canvas) {
             if (isDrawToCache) {
-                if (cacheCanvas != null) {
-                    cacheCanvas.drawColor(0, PorterDuff.Mode.CLEAR);
-                    super.draw(cacheCanvas);
+                if (cache != null) {
+                    capture(canvas);
                 }
+                // If there is no cache then content will be drawn directly by part views
             } else {
                 super.draw(canvas);
             }
         }
 
-        void setCacheCanvas(Canvas cacheCanvas) {
-            this.cacheCanvas = cacheCanvas;
+        private void capture(Canvas canvas) {
+            // Asynchronous capture is only possible if there is already captured content to show
+            final boolean isAsyncPossible = asyncCapture != null && isCacheValid
+                    && cache.getCapturedBounds().contains(captureBounds);
+
+            if (!computeCaptureRegion(canvas)) {
+                return;
+            }
+
+            if (isAsyncPossible) {
+                if (asyncCapture.isRunning()) {
+                    // Keeping current state, content will be captured once running capture is done
+                    isAsyncCapturePending = true;
+                    return;
+                }
+                // Back cache does not contain latest changes, so we have to capture all bounds
+                if (!asyncCapture.start(this, captureBounds, cache)) {
+                    cache.capture(captureRegion, this);
+                }
+            } else {
+                cache.capture(captureRegion, this);
+            }
+
+            dirtyBounds.setEmpty();
+            isCacheValid = true;
+        }
+
+        void onAsyncCaptured() {
+            if (isAsyncCapturePending) {
+                isAsyncCapturePending = false;
+                invalidate();
+            }
+        }
+
+        /**
+         * Draws content into given canvas, used to capture content or to draw it directly when
+         * no cache is available.
+         */
+        @Override
+        public void drawContent(Canvas canvas) {
+            super.draw(canvas);
+        }
+
+        /**
+         * Computes region of cache bitmap which should be (re)captured.
+         * Returns false if nothing should be captured.
+         */
+        private boolean computeCaptureRegion(Canvas canvas) {
+            if (captureBounds.isEmpty()) {
+                return false; // Nothing will be drawn by part views
+            }
+
+            // Software rendering will call this method on every frame and we can only skip
+            // capturing if frozen snapshot is requested. With hardware acceleration this method
+            // is only called when layout was invalidated.
+            final boolean isInvalidationTracked =
+                    isFrozenSnapshot || canvas.isHardwareAccelerated();
+
+            final Rect capturedBounds = cache.getCapturedBounds();
+
+            if (!isInvalidationTracked || !isCacheValid
+                    || !capturedBounds.contains(captureBounds)) {
+                // Capturing only regions which will actually be drawn by part views
+                captureRegion.set(captureBounds);
+                cache.setCapturedBounds(captureBounds);
+                return true;
+            }
+
+            if (!dirtyBounds.isEmpty()) {
+                // Only recapturing invalidated regions of already captured content
+                captureRegion.set(dirtyBounds);
+                return captureRegion.intersect(capturedBounds);
+            }
+
+            // Layout itself was invalidated, we have to capture everything once again
+            captureRegion.set(capturedBounds);
+            return canvas.isHardwareAccelerated();
+        }
+
+        boolean isCaptureUpToDate() {
+            return captureBounds.isEmpty() || (cache != null && isCacheValid
+                    && dirtyBounds.isEmpty() && cache.getCapturedBounds().contains(captureBounds));
+        }
+
+        void setCaptureBounds(Rect bounds) {
+            captureBounds.set(bounds);
+        }
+
+        @Override
+        protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+            super.onLayout(changed, left, top, right, bottom);
+            isCacheValid = false; // Children may be added, removed or moved
+        }
+
+        @Override
+        public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+            // One of descendants was changed, we need to capture it again.
+            // Dirty rect is relative to the child which is located at given location.
+            childDirtyBounds.set(dirty);
+            childDirtyBounds.offset(location[0] - getScrollX(), location[1] - getScrollY());
+            dirtyBounds.union(childDirtyBounds);
+
+            return super.invalidateChildInParent(location, dirty);
+        }
+
+        void setCache(BitmapCache cache) {
+            this.cache = cache;
+        }
+
+        void setAsyncCapture(AsyncCapture asyncCapture) {
+            this.asyncCapture = asyncCapture;
+            isAsyncCapturePending = false;
         }
 
         void setDrawToCache(boolean drawToCache) {
             if (isDrawToCache != drawToCache) {
                 isDrawToCache = drawToCache;
+                isCacheValid = false;
                 invalidate();
             }
         }
 
+        void setFrozenSnapshot(boolean isFrozenSnapshot) {
+            this.isFrozenSnapshot = isFrozenSnapshot;
+            isCacheValid = false;
+        }
+
     }
 
     /**
@@ -240,10 +788,28 @@ class FoldableItemLayout extends FrameLayout {
     private static class PartView extends View {
 
         private final int gravity;
-
-        private Bitmap bitmap;
+        private final FoldableItemLayout layout;
+        private final BaseLayout baseLayout;
+
+        // Transformation is either applied to view properties or, if part is not attached to
+        // parent layout, to transformation matrix used by parent layout to draw this part
+        private boolean isDetached;
+        private float partRotationX;
+        private float partScaleX = 1f;
+        private float partScaleY = 1f;
+        private float partTranslationY;
+        private Camera camera;
+        private final Matrix transformMatrix = new Matrix();
+        private final Matrix tmpMatrix = new Matrix();
+        private boolean isTransformMatrixDirty;
+
+        private BitmapCache cache;
         private final Rect bitmapBounds = new Rect();
 
+        private final Matrix inverseMatrix = new Matrix();
+        private final RectF tmpRectF = new RectF();
+        private final Rect tmpRect = new Rect();
+
         private float clippingFactor = 0.5f;
 
         private final Paint bitmapPaint;
@@ -259,6 +825,8 @@ class FoldableItemLayout extends FrameLayout {
         PartView(FoldableItemLayout parent, int gravity) {
             super(parent.getContext());
             this.gravity = gravity;
+            this.layout = parent;
+            this.baseLayout = parent.baseLayout;
 
             final int matchParent = LayoutParams.MATCH_PARENT;
             parent.addView(this, new LayoutParams(matchParent, matchParent));
@@ -271,8 +839,61 @@ class FoldableItemLayout extends FrameLayout {
             setWillNotDraw(false);
         }
 
-        void setCacheBitmap(Bitmap bitmap) {
-            this.bitmap = bitmap;
+        void setCache(BitmapCache cache) {
+            if (this.cache != cache) {
+                this.cache = cache;
+                invalidate();
+            }
+        }
+
+        void setDetached(boolean isDetached) {
+            this.isDetached = isDetached;
+            if (isDetached && camera == null) {
+                camera = new Camera();
+                camera.setLocation(0f, 0f, -CAMERA_DISTANCE);
+            }
+            applyTransformation();
+        }
+
+        @Override
+        public void invalidate() {
+            if (isDetached) {
+                layout.invalidate(); // Part is drawn by parent layout
+            } else {
+                super.invalidate();
+            }
+        }
+
+        /**
+         * Adds bounds which will be drawn by this part, if it is visible. If on-screen bounds
+         * of parent layout are provided then only on-screen part of content is added.
+         */
+        void unionDrawnBounds(Rect bounds, Rect onScreenBounds) {
+            if (getVisibility() != VISIBLE) {
+                return;
+            }
+
+            if (onScreenBounds == null) {
+                bounds.union(bitmapBounds);
+                return;
+            }
+
+            // Mapping parent's on-screen bounds into this (transformed) part's coordinates
+            tmpRectF.set(onScreenBounds);
+            if (getTransformMatrix().invert(inverseMatrix)) {
+                inverseMatrix.mapRect(tmpRectF);
+            }
+            tmpRectF.roundOut(tmpRect);
+
+            if (tmpRect.intersect(bitmapBounds)) {
+                bounds.union(tmpRect);
+            }
+        }
+
+        @Override
+        protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+            super.onSizeChanged(width, height, oldWidth, oldHeight);
+            isTransformMatrixDirty = true;
             calculateBitmapBounds();
         }
 
@@ -282,24 +903,29 @@ class FoldableItemLayout extends FrameLayout {
         }
 
         void setFoldShading(FoldShading shading) {
-            this.shading = shading;
+            if (this.shading != shading) {
+                this.shading = shading;
+                invalidate();
+            }
+        }
+
+        void setBitmapFiltering(boolean isFiltering) {
+            bitmapPaint.setDither(isFiltering);
+            bitmapPaint.setFilterBitmap(isFiltering);
+            invalidate();
         }
 
         private void calculateBitmapBounds() {
-            if (bitmap == null) {
-                bitmapBounds.set(0, 0, 0, 0);
-            } else {
-                int bh = bitmap.getHeight();
-                int bw = bitmap.getWidth();
+            int bh = getHeight();
+            int bw = getWidth();
 
-                int top = gravity == Gravity.TOP ? 0 : (int) (bh * (1f - clippingFactor) - 0.5f);
-                int bottom = gravity == Gravity.TOP ? (int) (bh * clippingFactor + 0.5f) : bh;
+            int top = gravity == Gravity.TOP ? 0 : (int) (bh * (1f - clippingFactor) - 0.5f);
+            int bottom = gravity == Gravity.TOP ? (int) (bh * clippingFactor + 0.5f) : bh;
 
-                bitmapBounds.set(0, top, bw, bottom);
-                if (visibleBounds != null) {
-                    if (!bitmapBounds.intersect(visibleBounds)) {
-                        bitmapBounds.set(0, 0, 0, 0); // No intersection
-                    }
+            bitmapBounds.set(0, top, bw, bottom);
+            if (visibleBounds != null) {
+                if (!bitmapBounds.intersect(visibleBounds)) {
+                    bitmapBounds.set(0, 0, 0, 0); // No intersection
                 }
             }
 
@@ -307,37 +933,12 @@ class FoldableItemLayout extends FrameLayout {
         }
 
         void applyFoldRotation(float rotation) {
-            float position = rotation;
-            while (position < 0f) {
-                position += 360f;
-            }
-            position %= 360f;
-            if (position > 180f) {
-                position -= 360f; // Now position is within (-180; 180]
-            }
+            final float position = toPartPosition(rotation);
 
-            float rotationX = 0f;
-            boolean isVisible = true;
+            partRotationX = getPartRotationX(position, gravity);
+            applyTransformation();
 
-            if (gravity == Gravity.TOP) {
-                if (position <= -90f || position == 180f) { // (-180; -90] || {180} - Will not show
-                    isVisible = false;
-                } else if (position < 0f) { // (-90; 0) - Applying rotation
-                    rotationX = position;
-                }
-                // [0; 180) - Holding still
-            } else {
-                if (position >= 90f) { // [90; 180] - Will not show
-                    isVisible = false;
-                } else if (position > 0f) { // (0; 90) - Applying rotation
-                    rotationX = position;
-                }
-                // (-180; 0] - Holding still
-            }
-
-            setRotationX(rotationX);
-
-            intVisibility = isVisible ? VISIBLE : INVISIBLE;
+            intVisibility = isPartVisible(position, gravity) ? VISIBLE : INVISIBLE;
             applyVisibility();
 
             localFoldRotation = position;
@@ -347,7 +948,8 @@ class FoldableItemLayout extends FrameLayout {
 
         void applyRollingDistance(float distance, float scaleY) {
             // Applying translation
-            setTranslationY((int) (distance * scaleY + 0.5f));
+            partTranslationY = (int) (distance * scaleY + 0.5f);
+            applyTransformation();
 
             // Computing clipping for top view (bottom clipping will be 1 - topClipping)
             final int h = getHeight() / 2;
@@ -358,6 +960,66 @@ class FoldableItemLayout extends FrameLayout {
             calculateBitmapBounds();
         }
 
+        void applyScale(float scaleX, float scaleY) {
+            partScaleX = scaleX;
+            partScaleY = scaleY;
+            applyTransformation();
+        }
+
+        private void applyTransformation() {
+            if (isDetached) {
+                isTransformMatrixDirty = true;
+                invalidate();
+            } else {
+                setRotationX(partRotationX);
+                setScaleX(partScaleX);
+                setScaleY(partScaleY);
+                setTranslationY(partTranslationY);
+            }
+        }
+
+        /**
+         * Computes same transformation as would be applied by the framework to the view with
+         * given rotation, scale and translation, pivoted at view's center.
+         */
+        private Matrix getTransformMatrix() {
+            if (!isDetached) {
+                return getMatrix();
+            }
+
+            if (isTransformMatrixDirty) {
+                isTransformMatrixDirty = false;
+
+                final float pivotX = 0.5f * getWidth();
+                final float pivotY = 0.5f * getHeight();
+
+                transformMatrix.setScale(partScaleX, partScaleY, pivotX, pivotY);
+
+                camera.save();
+                camera.rotateX(partRotationX);
+                camera.getMatrix(tmpMatrix);
+                camera.restore();
+
+                tmpMatrix.preTranslate(-pivotX, -pivotY);
+                tmpMatrix.postTranslate(pivotX, pivotY + partTranslationY);
+                transformMatrix.postConcat(tmpMatrix);
+            }
+            return transformMatrix;
+        }
+
+        /**
+         * Draws detached part into parent layout's canvas.
+         */
+        void drawTransformed(Canvas canvas) {
+            if (getVisibility() != VISIBLE) {
+                return;
+            }
+            canvas.save();
+            canvas.concat(getTransformMatrix());
+            draw(canvas);
+            canvas.restore();
+        }
+
         @Override
         public void setVisibility(int visibility) {
             extVisibility = visibility;
@@ -366,7 +1028,11 @@ class FoldableItemLayout extends FrameLayout {
 
         @SuppressLint("WrongConstant")
         private void applyVisibility() {
-            super.setVisibility(extVisibility == VISIBLE ? intVisibility : extVisibility);
+            final int visibility = extVisibility == VISIBLE ? intVisibility : extVisibility;
+            if (isDetached && getVisibility() != visibility) {
+                layout.invalidate();
+            }
+            super.setVisibility(visibility);
         }
 
         @SuppressLint("MissingSuperCall")
@@ -375,12 +1041,21 @@ class FoldableItemLayout extends FrameLayout {
             if (shading != null) {
                 shading.onPreDraw(canvas, bitmapBounds, localFoldRotation, gravity);
             }
-            if (bitmap != null) {
-                canvas.drawBitmap(bitmap, bitmapBounds, bitmapBounds, bitmapPaint);
-            }
-            if (shading != null) {
-                shading.onPostDraw(canvas, bitmapBounds, localFoldRotation, gravity);
+            boolean isFiltered = false;
+            if (cache != null) {
+                isFiltered = Utils.applyShadingFilter(
+                        bitmapPaint, shading, localFoldRotation, gravity);
+                cache.draw(canvas, bitmapBounds, bitmapPaint);
+            } else if (!bitmapBounds.isEmpty()) {
+                // No cache bitmap, drawing content directly. With hardware acceleration it will
+                // only record content's display list, clipped to this part's bounds.
+                canvas.save();
+                canvas.clipRect(bitmapBounds);
+                baseLayout.drawContent(canvas);
+                canvas.restore();
             }
+            Utils.postDrawShading(canvas, bitmapBounds, shading, localFoldRotation, gravity,
+                    isFiltered);
         }
 
     }
@@ -1,9 +1,15 @@
 package com.alexvasilkov.foldablelayout;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
 import android.animation.ObjectAnimator;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.database.DataSetObserver;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.os.Build;
 import android.util.AttributeSet;
 import android.util.SparseArray;
 import android.view.GestureDetector;
@@ -15,12 +21,11 @@ import android.widget.Adapter;
 import android.widget.BaseAdapter;
 import android.widget.FrameLayout;
 
+import com.alexvasilkov.foldablelayout.shading.FilterFoldShading;
 import com.alexvasilkov.foldablelayout.shading.FoldShading;
 import com.alexvasilkov.foldablelayout.shading.SimpleFoldShading;
 
-import java.util.HashMap;
 import java.util.LinkedList;
-import java.util.Map;
 import java.util.Queue;
 
 /**
@@ -31,13 +36,54 @@ import java.util.Queue;
  */
 public class FoldableListLayout extends FrameLayout {
 
+    /**
+     * Items content is cached into bitmaps if drawing is not hardware accelerated, otherwise it is
+     * recorded directly into part views. Default mode.
+     */
+    public static final int CAPTURE_MODE_AUTO = 0;
+    /**
+     * Items content is always rendered into cache bitmaps.
+     */
+    public static final int CAPTURE_MODE_BITMAP = 1;
+    /**
+     * Items content is always drawn directly into part views without caching.
+     */
+    public static final int CAPTURE_MODE_DIRECT = 2;
+
+    /**
+     * Full rendering quality. Default level.
+     */
+    public static final int QUALITY_HIGH = 0;
+    /**
+     * Cached content is drawn without bitmap filtering and dithering. Has no effect if content is
+     * not cached into bitmaps (see {@link #setCaptureMode(int)}), in which case it is skipped by
+     * adaptive quality.
+     */
+    public static final int QUALITY_MEDIUM = 1;
+    /**
+     * Same as {@link #QUALITY_MEDIUM}, plus content is cached at half resolution. Same as medium
+     * level, it has no effect and is skipped by adaptive quality if content is not cached.
+     */
+    public static final int QUALITY_LOW = 2;
+    /**
+     * Same as {@link #QUALITY_LOW}, plus fold shading is not drawn.
+     */
+    public static final int QUALITY_LOWEST = 3;
+
     private static final long ANIMATION_DURATION_PER_ITEM = 600L;
+    private static final long DEFAULT_CACHE_RELEASE_DELAY = 1000L;
     private static final float MIN_FLING_VELOCITY = 600f;
     private static final float DEFAULT_SCROLL_FACTOR = 1.33f;
 
     private static final LayoutParams PARAMS =
             new LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
-    private static final int MAX_CHILDREN_COUNT = 3;
+    private static final int DEFAULT_ITEMS_BEHIND = 1;
+    private static final int DEFAULT_ITEMS_AHEAD = 1;
+    private static final int DEFAULT_MAX_RECYCLED_VIEWS = 5;
+
+    private static final int UPDATE_INSERT = 0;
+    private static final int UPDATE_REMOVE = 1;
+    private static final int UPDATE_MOVE = 2;
 
     private OnFoldRotationListener foldRotationListener;
     private BaseAdapter adapter;
@@ -50,15 +96,31 @@ public class FoldableListLayout extends FrameLayout {
     private FoldableItemLayout frontLayout;
     private FoldShading foldShading;
     private boolean isAutoScaleEnabled;
-
-    private final SparseArray<FoldableItemLayout> foldableItemsMap = new SparseArray<>();
+    private boolean isFrozenSnapshotEnabled;
+    private Bitmap.Config cacheBitmapConfig = Bitmap.Config.ARGB_8888;
+    private int captureMode = CAPTURE_MODE_AUTO;
+    private boolean isAsyncCaptureEnabled;
+    private long cacheReleaseDelay = DEFAULT_CACHE_RELEASE_DELAY;
+    private boolean isSingleViewRenderingEnabled;
+    private FoldSurfaceView foldSurface;
+    private QualityGovernor qualityGovernor;
+    private int qualityLevel = QUALITY_HIGH;
+    private OnQualityChangeListener qualityChangeListener;
+
+    private int itemsBehind = DEFAULT_ITEMS_BEHIND;
+    private int itemsAhead = DEFAULT_ITEMS_AHEAD;
+    private int windowPosition;
+    private boolean isDataChangePending;
+    private boolean isItemsChangePending;
+    private final ItemsWindow foldableItems =
+            new ItemsWindow(DEFAULT_ITEMS_BEHIND + DEFAULT_ITEMS_AHEAD + 2);
     private final Queue<FoldableItemLayout> foldableItemsCache = new LinkedList<>();
 
-    private final SparseArray<Queue<View>> recycledViews = new SparseArray<>();
-    private final Map<View, Integer> viewsTypesMap = new HashMap<>();
+    private final SparseArray<RecycledViews> recycledViews = new SparseArray<>();
 
     private boolean isGesturesEnabled = true;
     private ObjectAnimator animator;
+    private float animationTarget;
     private long lastTouchEventTime;
     private int lastTouchEventAction;
     private boolean lastTouchEventResult;
@@ -76,13 +138,76 @@ public class FoldableListLayout extends FrameLayout {
         @Override
         public void onChanged() {
             super.onChanged();
-            updateAdapterData();
+            onDataChanged();
         }
 
         @Override
         public void onInvalidated() {
             super.onInvalidated();
-            updateAdapterData();
+            onDataChanged();
+        }
+    };
+
+    private final FoldableAdapter.Observer itemsObserver = new FoldableAdapter.Observer() {
+        @Override
+        public void onChanged() {
+            onDataChanged();
+        }
+
+        @Override
+        public void onItemRangeChanged(int positionStart, int itemCount) {
+            if (!isDataChangePending) {
+                invalidateItems(positionStart, itemCount);
+                onItemsChanged();
+            }
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            if (!isDataChangePending) {
+                updateItemPositions(UPDATE_INSERT, positionStart, itemCount);
+                onItemsChanged();
+            }
+        }
+
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            if (!isDataChangePending) {
+                updateItemPositions(UPDATE_REMOVE, positionStart, itemCount);
+                onItemsChanged();
+            }
+        }
+
+        @Override
+        public void onItemMoved(int fromPosition, int toPosition) {
+            if (!isDataChangePending) {
+                updateItemPositions(UPDATE_MOVE, fromPosition, toPosition);
+                onItemsChanged();
+            }
+        }
+    };
+
+    private final Runnable adapterUpdatesTask = new Runnable() {
+        @Override
+        public void run() {
+            flushAdapterUpdates();
+        }
+    };
+
+    private final ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            releaseCaches();
+        }
+
+        @Override
+        public void onLowMemory() {
+            releaseCaches();
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+            // Nothing to do
         }
     };
 
@@ -121,6 +246,12 @@ public class FoldableListLayout extends FrameLayout {
         });
         gestureDetector.setIsLongpressEnabled(false);
         animator = ObjectAnimator.ofFloat(this, "foldRotation", 0f);
+        animator.addListener(new AnimatorListenerAdapter() {
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                updateFoldSurfaceState();
+            }
+        });
         minDistanceBeforeScroll = ViewConfiguration.get(context).getScaledTouchSlop();
 
         flingAnimation = new FlingAnimation();
@@ -139,15 +270,88 @@ public class FoldableListLayout extends FrameLayout {
 
     @Override
     protected void dispatchDraw(Canvas canvas) {
-        // We want to manually draw selected children
-        if (backLayout != null) {
+        if (foldSurface != null && foldSurface.isReady()) {
+            updateSnapshots();
+            if (foldSurface.isActive()) {
+                // Fold is drawn on render thread, which does not depend on quality level, so
+                // these frames are not measured
+                return;
+            }
+        }
+
+        if (qualityGovernor != null) {
+            qualityGovernor.onFoldDrawn();
+        }
+
+        // We want to manually draw selected children.
+        // Layouts rotated out of view (e.g. back layout at rest) are skipped along with their
+        // content capturing.
+        if (backLayout != null && !backLayout.isFullyHidden()) {
             backLayout.draw(canvas);
         }
-        if (frontLayout != null) {
+        if (frontLayout != null && !frontLayout.isFullyHidden()) {
             frontLayout.draw(canvas);
         }
     }
 
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getContext().getApplicationContext().registerComponentCallbacks(memoryCallbacks);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        getContext().getApplicationContext().unregisterComponentCallbacks(memoryCallbacks);
+        if (qualityGovernor != null) {
+            qualityGovernor.setFolding(false);
+        }
+    }
+
+    /**
+     * Frees items cache bitmaps when system is running low on memory or app goes to background.
+     * Caches will be reacquired on next fold.
+     */
+    private void releaseCaches() {
+        for (int i = 0, size = foldableItems.size(); i < size; i++) {
+            foldableItems.valueAt(i).releaseCache();
+        }
+        for (FoldableItemLayout layout : foldableItemsCache) {
+            layout.releaseCache();
+        }
+        BitmapPool.clear();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        if (MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.EXACTLY
+                || MeasureSpec.getMode(heightMeasureSpec) != MeasureSpec.EXACTLY) {
+            super.onMeasure(widthMeasureSpec, heightMeasureSpec);
+            return;
+        }
+
+        // All children fill this layout, so there is no need to measure them to find own size.
+        // Children are measured with the same exact specs each time, so View.measure() will reuse
+        // cached results for children which did not request layout.
+        setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec),
+                MeasureSpec.getSize(heightMeasureSpec));
+
+        final int width = getMeasuredWidth() - getPaddingLeft() - getPaddingRight();
+        final int height = getMeasuredHeight() - getPaddingTop() - getPaddingBottom();
+        final int childWidthSpec =
+                MeasureSpec.makeMeasureSpec(Math.max(0, width), MeasureSpec.EXACTLY);
+        final int childHeightSpec =
+                MeasureSpec.makeMeasureSpec(Math.max(0, height), MeasureSpec.EXACTLY);
+
+        for (int i = 0, count = getChildCount(); i < count; i++) {
+            final View child = getChildAt(i);
+            if (child.getVisibility() != GONE) {
+                child.measure(childWidthSpec, childHeightSpec);
+            }
+        }
+    }
+
     @Override
     public boolean dispatchTouchEvent(MotionEvent ev) {
         super.dispatchTouchEvent(ev);
@@ -188,6 +392,9 @@ public class FoldableListLayout extends FrameLayout {
      */
     public void setFoldShading(FoldShading shading) {
         foldShading = shading;
+        if (foldSurface != null) {
+            foldSurface.setFoldShading(shading);
+        }
     }
 
     /**
@@ -204,20 +411,277 @@ public class FoldableListLayout extends FrameLayout {
     @SuppressWarnings("unused") // Public API
     public void setAutoScaleEnabled(boolean isAutoScaleEnabled) {
         this.isAutoScaleEnabled = isAutoScaleEnabled;
-        for (int i = 0, size = foldableItemsMap.size(); i < size; i++) {
-            foldableItemsMap.valueAt(i).setAutoScaleEnabled(isAutoScaleEnabled);
+        for (int i = 0, size = foldableItems.size(); i < size; i++) {
+            foldableItems.valueAt(i).setAutoScaleEnabled(isAutoScaleEnabled);
+        }
+    }
+
+    /**
+     * Sets whether folding parts of each item should be drawn by item layout itself in a single
+     * pass, using transformation computed once per frame, instead of being drawn as two separate
+     * child views with their own rotation, scale and translation properties.
+     * <p/>
+     * Reduces number of views in hierarchy and avoids per-property invalidation overhead.
+     */
+    @SuppressWarnings("unused") // Public API
+    public void setSingleViewRenderingEnabled(boolean isEnabled) {
+        this.isSingleViewRenderingEnabled = isEnabled;
+        for (int i = 0, size = foldableItems.size(); i < size; i++) {
+            foldableItems.valueAt(i).setSingleViewRenderingEnabled(isEnabled);
+        }
+    }
+
+    /**
+     * Sets whether fold animation should be drawn on a separate surface by dedicated render
+     * thread. Items content is captured into snapshots on main thread and fold animations are
+     * run by render thread itself, so flings and scroll animations stay smooth even if main thread
+     * is busy, e.g. with adapter views binding.
+     * <p/>
+     * Snapshots are only taken once per item binding, so items content will not be updated during
+     * fold. Only color filter of {@link FilterFoldShading} is applied by render thread, since
+     * shadings are shared with main thread and are not thread-safe in general. Auto scaling and
+     * transformations applied by {@link UnfoldableView} are not supported by this mode, so it is
+     * ignored by unfoldable view.
+     * <p/>
+     * Fold surface is placed on top of the window while fold is active: it is drawn above any
+     * views overlapping this layout (e.g. toolbars or floating buttons) and it ignores clipping
+     * and alpha of parent views. Do not use this mode if this layout can be overlapped, clipped
+     * or faded by other views.
+     * <p/>
+     * Requires Android 4.1 or higher, ignored on older versions.
+     */
+    @SuppressWarnings("unused") // Public API
+    public void setRenderThreadEnabled(boolean isEnabled) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return;
+        }
+
+        if (isEnabled && foldSurface == null) {
+            foldSurface = new FoldSurfaceView(getContext());
+            foldSurface.setFoldShading(foldShading);
+            foldSurface.setFoldRotation(foldRotation);
+            addView(foldSurface, PARAMS);
+            updateFoldSurfaceState();
+        } else if (!isEnabled && foldSurface != null) {
+            removeView(foldSurface);
+            foldSurface = null;
+        }
+        invalidate();
+    }
+
+    /**
+     * Sets whether rendering quality should be adapted to measured fold frame durations.
+     * Quality is stepped down (see {@link #QUALITY_MEDIUM}, {@link #QUALITY_LOW} and
+     * {@link #QUALITY_LOWEST}) when frames take longer than display refresh interval, and is
+     * stepped back up when there is enough headroom.
+     * <p/>
+     * Requires Android 4.1 or higher, ignored on older versions.
+     */
+    @SuppressWarnings("unused") // Public API
+    public void setAdaptiveQualityEnabled(boolean isEnabled) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+            return;
+        }
+
+        if (isEnabled && qualityGovernor == null) {
+            final QualityGovernor.Listener listener = new QualityGovernor.Listener() {
+                @Override
+                public void onLevelChanged(int level) {
+                    setQualityLevel(level);
+                }
+
+                @Override
+                public boolean isLevelEffective(int level) {
+                    // Medium and low levels only affect cache bitmaps
+                    return (level != QUALITY_MEDIUM && level != QUALITY_LOW)
+                            || isCacheBitmapUsed();
+                }
+            };
+            qualityGovernor = new QualityGovernor(this, QUALITY_LOWEST, listener);
+            qualityGovernor.setFolding(foldRotation % 180f != 0f);
+        } else if (!isEnabled && qualityGovernor != null) {
+            qualityGovernor.setFolding(false);
+            qualityGovernor = null;
+            setQualityLevel(QUALITY_HIGH);
         }
     }
 
+    /**
+     * Whether items content is drawn from cache bitmaps, see {@link #setCaptureMode(int)}.
+     */
+    private boolean isCacheBitmapUsed() {
+        return captureMode == CAPTURE_MODE_BITMAP
+                || (captureMode == CAPTURE_MODE_AUTO && !isHardwareAccelerated());
+    }
+
+    @SuppressWarnings("unused") // Public API
+    public void setOnQualityChangeListener(OnQualityChangeListener listener) {
+        qualityChangeListener = listener;
+    }
+
+    /**
+     * Returns current rendering quality level, {@link #QUALITY_HIGH} unless adaptive quality is
+     * enabled.
+     */
+    @SuppressWarnings("unused") // Public API
+    public int getQualityLevel() {
+        return qualityLevel;
+    }
+
+    private void setQualityLevel(int level) {
+        if (qualityLevel == level) {
+            return;
+        }
+        qualityLevel = level;
+        for (int i = 0, size = foldableItems.size(); i < size; i++) {
+            foldableItems.valueAt(i).setQualityLevel(level);
+        }
+        if (qualityChangeListener != null) {
+            qualityChangeListener.onQualityChanged(level);
+        }
+    }
+
+    /**
+     * Sets whether items content should be captured only once when fold starts instead of
+     * redrawing it on every animation frame. If any of item's views is invalidated then only
+     * invalidated region will be recaptured.
+     * <p/>
+     * Considerably speeds up folding of static content, but views which change their appearance
+     * without calling {@link View#invalidate()} will not be updated during fold.
+     * <p/>
+     * Only applies when items are cached into bitmaps, see {@link #setCaptureMode(int)}.
+     */
+    @SuppressWarnings("unused") // Public API
+    public void setFrozenSnapshotEnabled(boolean isFrozenSnapshotEnabled) {
+        this.isFrozenSnapshotEnabled = isFrozenSnapshotEnabled;
+        for (int i = 0, size = foldableItems.size(); i < size; i++) {
+            foldableItems.valueAt(i).setFrozenSnapshotEnabled(isFrozenSnapshotEnabled);
+        }
+    }
+
+    /**
+     * Sets config of bitmaps used to cache items content during fold. Default is
+     * {@link Bitmap.Config#ARGB_8888}, {@link Bitmap.Config#RGB_565} can be used to halve memory
+     * usage if items content is opaque.
+     * <p/>
+     * If there is not enough memory then {@link Bitmap.Config#RGB_565} config and then reduced
+     * resolution will be tried before falling back to drawing items content without caching.
+     * <p/>
+     * Only applies when items are cached into bitmaps, see {@link #setCaptureMode(int)}.
+     */
+    @SuppressWarnings("unused") // Public API
+    public void setCacheBitmapConfig(Bitmap.Config config) {
+        this.cacheBitmapConfig = config;
+        for (int i = 0, size = foldableItems.size(); i < size; i++) {
+            foldableItems.valueAt(i).setCacheBitmapConfig(config);
+        }
+    }
+
+    /**
+     * Sets how items content is captured during fold: {@link #CAPTURE_MODE_AUTO} (default),
+     * {@link #CAPTURE_MODE_BITMAP} or {@link #CAPTURE_MODE_DIRECT}.
+     * <p/>
+     * When drawing is hardware accelerated, auto mode records items display lists into both
+     * folding parts, clipped to each part's half, instead of rendering items in software.
+     * Bitmap cache is used as a fallback otherwise.
+     */
+    @SuppressWarnings("unused") // Public API
+    public void setCaptureMode(int captureMode) {
+        this.captureMode = captureMode;
+        for (int i = 0, size = foldableItems.size(); i < size; i++) {
+            foldableItems.valueAt(i).setCaptureMode(captureMode);
+        }
+    }
+
+    /**
+     * Sets whether items content should be recorded into {@link android.graphics.Picture} on main
+     * thread and rendered into cache bitmaps on background threads. Rendered content is swapped in
+     * once it is ready, so folding items may lag behind their content for a frame.
+     * <p/>
+     * Requires additional cache bitmap per item. Initial content is still captured synchronously.
+     * Only applies when items are cached into bitmaps, see {@link #setCaptureMode(int)}.
+     */
+    @SuppressWarnings("unused") // Public API
+    public void setAsyncCaptureEnabled(boolean isAsyncCaptureEnabled) {
+        this.isAsyncCaptureEnabled = isAsyncCaptureEnabled;
+        for (int i = 0, size = foldableItems.size(); i < size; i++) {
+            foldableItems.valueAt(i).setAsyncCaptureEnabled(isAsyncCaptureEnabled);
+        }
+    }
+
+    /**
+     * Sets delay in milliseconds after which items cache bitmaps are released once fold rotation
+     * rests on an item. Default is 1 second, negative value disables idle release.
+     * <p/>
+     * Caches are also released when system requests to trim memory.
+     */
+    @SuppressWarnings("unused") // Public API
+    public void setCacheReleaseDelay(long delay) {
+        this.cacheReleaseDelay = delay;
+        for (int i = 0, size = foldableItems.size(); i < size; i++) {
+            foldableItems.valueAt(i).setCacheReleaseDelay(delay);
+        }
+    }
+
+
+    /**
+     * Sets how many items are kept bound besides the two currently visible items: {@code behind}
+     * items before them and {@code ahead} items after them. Items leaving this window are unbound
+     * and their layouts are reused. Default is 1 item behind and 1 item ahead, so that an item
+     * just scrolled past in either direction is still bound when scrolling back.
+     * <p/>
+     * Larger window avoids rebinding items when scrolling back and forth, which is useful when
+     * items are cheap to keep, smaller window reduces memory used by heavy items.
+     */
+    @SuppressWarnings("unused") // Public API
+    public void setItemsWindow(int behind, int ahead) {
+        if (behind < 0 || ahead < 0) {
+            throw new IllegalArgumentException("Window sizes should not be negative");
+        }
+        if (itemsBehind == behind && itemsAhead == ahead) {
+            return;
+        }
+        itemsBehind = behind;
+        itemsAhead = ahead;
+
+        freeAllLayouts();
+        if (foldSurface != null) {
+            foldSurface.clearSnapshots();
+        }
+        foldableItems.setCapacity(behind + ahead + 2);
+        setFoldRotation(foldRotation);
+    }
+
+    /**
+     * Sets max number of recycled views of given type to keep for reuse. Default is 5.
+     */
+    @SuppressWarnings("unused") // Public API
+    public void setMaxRecycledViews(int viewType, int max) {
+        getRecycledViews(viewType).setMaxSize(max);
+    }
+
 
     public void setAdapter(BaseAdapter adapter) {
         if (this.adapter != null) {
             this.adapter.unregisterDataSetObserver(dataObserver);
         }
+        if (this.adapter instanceof HolderAdapter) {
+            ((HolderAdapter) this.adapter).getFoldableAdapter().unregisterObserver(itemsObserver);
+        }
         this.adapter = adapter;
         if (this.adapter != null) {
             this.adapter.registerDataSetObserver(dataObserver);
         }
+        if (this.adapter instanceof HolderAdapter) {
+            ((HolderAdapter) this.adapter).getFoldableAdapter().registerObserver(itemsObserver);
+        }
+
+        // Views created by previous adapter cannot be reused
+        freeAllLayouts();
+        for (int i = 0, size = recycledViews.size(); i < size; i++) {
+            recycledViews.valueAt(i).clear();
+        }
+
         updateAdapterData();
     }
 
@@ -226,23 +690,313 @@ public class FoldableListLayout extends FrameLayout {
         return adapter;
     }
 
+    /**
+     * Sets view holders based adapter. Unlike {@link #setAdapter(BaseAdapter)} it allows to notify
+     * about changes of particular items, in which case only affected items are rebound.
+     */
+    @SuppressWarnings("unused") // Public API
+    public void setFoldableAdapter(FoldableAdapter<?> adapter) {
+        setAdapter(adapter == null ? null : new HolderAdapter(adapter));
+    }
+
+    @SuppressWarnings("unused") // Public API
+    public FoldableAdapter<?> getFoldableAdapter() {
+        return adapter instanceof HolderAdapter
+                ? ((HolderAdapter) adapter).getFoldableAdapter() : null;
+    }
+
     public int getCount() {
         return adapter == null ? 0 : adapter.getCount();
     }
 
+    /**
+     * Applies pending adapter changes right away.
+     * <p/>
+     * Adapter notifications are not applied immediately, instead they are coalesced and applied
+     * once on next animation frame, so a burst of notifications costs a single rebinding. Call
+     * this method if layout state should be up to date synchronously after notifying adapter.
+     */
+    @SuppressWarnings("unused") // Public API
+    public void flushAdapterUpdates() {
+        if (isDataChangePending) {
+            updateAdapterData();
+        } else if (isItemsChangePending) {
+            removeCallbacks(adapterUpdatesTask);
+            isItemsChangePending = false;
+
+            rebindChangedItems();
+            // Binding items which are not bound yet
+            setFoldRotation(foldRotation);
+        }
+    }
+
+    private void onDataChanged() {
+        scheduleAdapterUpdates();
+        isDataChangePending = true;
+    }
+
+    private void onItemsChanged() {
+        scheduleAdapterUpdates();
+        isItemsChangePending = true;
+    }
+
+    private void scheduleAdapterUpdates() {
+        if (!isDataChangePending && !isItemsChangePending) {
+            Utils.postOnNextFrame(this, adapterUpdatesTask);
+        }
+    }
+
     private void updateAdapterData() {
-        int count = getCount();
-        minRotation = 0f;
-        maxRotation = count == 0 ? 0f : 180f * (count - 1);
+        // All pending changes are applied at once
+        removeCallbacks(adapterUpdatesTask);
+        isDataChangePending = false;
+        isItemsChangePending = false;
+
+        updateRotationBounds();
 
-        freeAllLayouts(); // Clearing old bindings
-        recycledViews.clear();
-        viewsTypesMap.clear();
+        if (adapter != null && adapter.hasStableIds()) {
+            rebindStableItems();
+        } else {
+            freeAllLayouts(); // Clearing old bindings
+        }
+        if (foldSurface != null) {
+            foldSurface.clearSnapshots();
+        }
 
         // Recalculating items
         setFoldRotation(foldRotation);
     }
 
+    /**
+     * Keeps layouts of items which ids were not changed, moving them to new positions of their
+     * items, and frees all other layouts. Current item stays in place if it is still in adapter.
+     */
+    private void rebindStableItems() {
+        final int size = foldableItems.size();
+        if (size == 0) {
+            return;
+        }
+
+        // Finding new position of current item by its id
+        final int position = getPosition();
+        final FoldableItemLayout current = foldableItems.get(position);
+        final int newPosition =
+                current == null ? -1 : findItemPosition(current.getItemId(), position);
+        final int shift = newPosition == -1 ? 0 : newPosition - position;
+
+        final float resumeTarget = shift == 0 ? Float.NaN : shiftFoldRotation(shift);
+
+        final int count = getCount();
+        final int[] positions = new int[size];
+        final FoldableItemLayout[] layouts = new FoldableItemLayout[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = foldableItems.keyAt(i);
+            layouts[i] = foldableItems.valueAt(i);
+        }
+        foldableItems.clear();
+
+        // Items which were moved together with current item are kept, other items are freed
+        for (int i = 0; i < size; i++) {
+            final int itemPosition = positions[i] + shift;
+            final FoldableItemLayout layout = layouts[i];
+
+            if (itemPosition < 0 || itemPosition >= count
+                    || adapter.getItemId(itemPosition) != layout.getItemId()
+                    || adapter.getItemViewType(itemPosition) != layout.getViewType()) {
+                recycleAdapterView(layout);
+                poolLayout(layout);
+            } else {
+                // Item data can be changed even if id is the same, converting view in place
+                rebindAdapterView(layout, itemPosition);
+                foldableItems.put(itemPosition, layout);
+            }
+        }
+
+        resumeFoldAnimation(resumeTarget);
+    }
+
+    /**
+     * Shifts fold rotation by given number of items, to keep current item in place when items
+     * are inserted or removed before it. Ongoing drag is shifted as well. Running animation or
+     * fling is stopped, since it moves between old rotations, and its shifted target is returned
+     * to be passed into {@link #resumeFoldAnimation(float)} once items are updated.
+     * Returns {@code NaN} if nothing was running.
+     */
+    private float shiftFoldRotation(int shift) {
+        final float delta = 180f * shift;
+
+        float target = Float.NaN;
+        if (animator.isRunning()) {
+            target = animationTarget + delta;
+        } else if (flingAnimation.isAnimating()) {
+            target = flingAnimation.getTarget() + delta;
+        }
+        animator.cancel();
+        flingAnimation.stop();
+
+        foldRotation += delta;
+        windowPosition += shift;
+        scrollStartRotation += delta;
+
+        return target;
+    }
+
+    private void resumeFoldAnimation(float target) {
+        if (!Float.isNaN(target)) {
+            animateFold(Math.max(minRotation, Math.min(target, maxRotation)));
+        }
+    }
+
+    /**
+     * Marks bound items within given range as changed, so they are rebound on next adapter update.
+     */
+    private void invalidateItems(int positionStart, int itemCount) {
+        for (int i = 0, size = foldableItems.size(); i < size; i++) {
+            final int position = foldableItems.keyAt(i);
+            if (position >= positionStart && position < positionStart + itemCount) {
+                foldableItems.valueAt(i).setItemChanged(true);
+            }
+        }
+    }
+
+    /**
+     * Rebinds bound items which were marked as changed, other items are left intact.
+     */
+    private void rebindChangedItems() {
+        for (int i = 0, size = foldableItems.size(); i < size; i++) {
+            final FoldableItemLayout layout = foldableItems.valueAt(i);
+            if (!layout.isItemChanged()) {
+                continue;
+            }
+
+            final int position = foldableItems.keyAt(i);
+            if (adapter.getItemViewType(position) == layout.getViewType()) {
+                rebindAdapterView(layout, position);
+            } else {
+                recycleAdapterView(layout);
+                setupAdapterView(layout, position);
+            }
+
+            if (foldSurface != null) {
+                foldSurface.removeSnapshot(position);
+            }
+        }
+    }
+
+    /**
+     * Moves bound items to their new positions after items were inserted, removed or moved,
+     * without rebinding them. Fold rotation is shifted to keep current item in place when items
+     * are inserted or removed before it. Items inserted at current position are shown in place of
+     * current item, if current item is removed then the item following it is shown.
+     * <p/>
+     * Missing items are bound on next adapter update.
+     */
+    private void updateItemPositions(int update, int positionStart, int arg) {
+        updateRotationBounds();
+
+        final int position = getPosition();
+        int newPosition;
+        if (update == UPDATE_INSERT && positionStart >= position) {
+            // Items inserted at current position are shown in its place, as well as items inserted
+            // into empty adapter
+            newPosition = position;
+        } else {
+            newPosition = mapPosition(update, position, positionStart, arg);
+            if (newPosition == ItemsWindow.NO_POSITION) {
+                newPosition = positionStart;
+            }
+        }
+        final int shift = newPosition - position;
+
+        final float resumeTarget = shift == 0 ? Float.NaN : shiftFoldRotation(shift);
+
+        final int count = getCount();
+        final int from = windowPosition - itemsBehind;
+        final int to = windowPosition + 1 + itemsAhead;
+
+        final int size = foldableItems.size();
+        final int[] positions = new int[size];
+        final FoldableItemLayout[] layouts = new FoldableItemLayout[size];
+        for (int i = 0; i < size; i++) {
+            positions[i] = foldableItems.keyAt(i);
+            layouts[i] = foldableItems.valueAt(i);
+        }
+        foldableItems.clear();
+
+        for (int i = 0; i < size; i++) {
+            final int itemPosition = mapPosition(update, positions[i], positionStart, arg);
+            final FoldableItemLayout layout = layouts[i];
+
+            if (itemPosition == ItemsWindow.NO_POSITION || itemPosition >= count
+                    || itemPosition < from || itemPosition > to) {
+                recycleAdapterView(layout);
+                poolLayout(layout);
+            } else {
+                foldableItems.put(itemPosition, layout);
+            }
+        }
+
+        if (foldSurface != null) {
+            foldSurface.clearSnapshots();
+        }
+
+        resumeFoldAnimation(resumeTarget);
+    }
+
+    /**
+     * Computes new position of the item after given update, for removed items
+     * {@link ItemsWindow#NO_POSITION} is returned. For moves {@code arg} is target position,
+     * otherwise it is items count.
+     */
+    private static int mapPosition(int update, int position, int positionStart, int arg) {
+        switch (update) {
+            case UPDATE_INSERT:
+                return position >= positionStart ? position + arg : position;
+            case UPDATE_REMOVE:
+                if (position < positionStart) {
+                    return position;
+                }
+                return position < positionStart + arg ? ItemsWindow.NO_POSITION : position - arg;
+            case UPDATE_MOVE:
+                if (position == positionStart) {
+                    return arg;
+                } else if (positionStart < arg && position > positionStart && position <= arg) {
+                    return position - 1;
+                } else if (arg < positionStart && position >= arg && position < positionStart) {
+                    return position + 1;
+                }
+                return position;
+            default:
+                throw new IllegalArgumentException("Unknown update type: " + update);
+        }
+    }
+
+    private void updateRotationBounds() {
+        int count = getCount();
+        minRotation = 0f;
+        maxRotation = count == 0 ? 0f : 180f * (count - 1);
+    }
+
+    /**
+     * Searches adapter for item with given id, starting from given position and moving outwards.
+     */
+    private int findItemPosition(long itemId, int startPosition) {
+        final int count = getCount();
+        final int maxDistance = Math.max(startPosition + 1, count - startPosition);
+        for (int distance = 0; distance < maxDistance; distance++) {
+            final int after = startPosition + distance;
+            if (after < count && adapter.getItemId(after) == itemId) {
+                return after;
+            }
+            final int before = startPosition - distance;
+            if (distance > 0 && before >= 0 && before < count
+                    && adapter.getItemId(before) == itemId) {
+                return before;
+            }
+        }
+        return -1;
+    }
+
     public float getFoldRotation() {
         return foldRotation;
     }
@@ -265,6 +1019,8 @@ public class FoldableListLayout extends FrameLayout {
         final float localRotation = rotation % 180f;
         final int totalCount = getCount();
 
+        moveItemsWindow(firstVisiblePosition);
+
         FoldableItemLayout firstLayout = null;
         FoldableItemLayout secondLayout = null;
 
@@ -290,6 +1046,18 @@ public class FoldableListLayout extends FrameLayout {
             frontLayout = secondLayout;
         }
 
+        if (qualityGovernor != null) {
+            qualityGovernor.setFolding(rotation % 180f != 0f);
+        }
+
+        if (foldSurface != null) {
+            // Render thread runs its own animations, only direct changes are passed to it
+            if (isFromUser || !isAnimating()) {
+                foldSurface.setFoldRotation(rotation);
+            }
+            updateFoldSurfaceState();
+        }
+
         if (foldRotationListener != null) {
             foldRotationListener.onFoldRotation(rotation, isFromUser);
         }
@@ -304,34 +1072,16 @@ public class FoldableListLayout extends FrameLayout {
     }
 
     private FoldableItemLayout getLayoutForItem(int position) {
-        FoldableItemLayout layout = foldableItemsMap.get(position);
+        FoldableItemLayout layout = foldableItems.get(position);
         if (layout != null) {
             return layout; // We already have layout for this position
         }
 
-        // Trying to free used layout (far enough from currently requested)
-        int farthestItem = position;
-
-        int size = foldableItemsMap.size();
-        for (int i = 0; i < size; i++) {
-            int pos = foldableItemsMap.keyAt(i);
-            if (Math.abs(position - pos) > Math.abs(position - farthestItem)) {
-                farthestItem = pos;
-            }
-        }
-
-        if (Math.abs(farthestItem - position) >= MAX_CHILDREN_COUNT) {
-            layout = foldableItemsMap.get(farthestItem);
-            foldableItemsMap.remove(farthestItem);
-            recycleAdapterView(layout);
-        }
-
-        if (layout == null) {
-            // Trying to find cached layout
-            layout = foldableItemsCache.poll();
-        }
-
-        if (layout == null) {
+        // Trying to find cached layout
+        layout = foldableItemsCache.poll();
+        if (layout != null) {
+            layout.setVisibility(VISIBLE); // Layout will be measured since it was gone
+        } else {
             // If still no suited layout - create it
             layout = new FoldableItemLayout(getContext());
             layout.setFoldShading(foldShading);
@@ -339,31 +1089,74 @@ public class FoldableListLayout extends FrameLayout {
         }
 
         layout.setAutoScaleEnabled(isAutoScaleEnabled);
+        layout.setFrozenSnapshotEnabled(isFrozenSnapshotEnabled);
+        layout.setCacheBitmapConfig(cacheBitmapConfig);
+        layout.setCaptureMode(captureMode);
+        layout.setAsyncCaptureEnabled(isAsyncCaptureEnabled);
+        layout.setCacheReleaseDelay(cacheReleaseDelay);
+        layout.setSingleViewRenderingEnabled(isSingleViewRenderingEnabled);
+        layout.setQualityLevel(qualityLevel);
         setupAdapterView(layout, position);
-        foldableItemsMap.put(position, layout);
+        foldableItems.put(position, layout);
 
         return layout;
     }
 
+    private boolean isAnimating() {
+        return animator.isRunning() || flingAnimation.isAnimating();
+    }
+
+    private void updateFoldSurfaceState() {
+        if (foldSurface != null) {
+            foldSurface.setActive(foldRotation % 180f != 0f || isAnimating());
+        }
+    }
+
+    /**
+     * Captures snapshots of bound items which are not yet passed to the render thread.
+     */
+    private void updateSnapshots() {
+        for (int i = 0, size = foldableItems.size(); i < size; i++) {
+            final int position = foldableItems.keyAt(i);
+            if (!foldSurface.hasSnapshot(position)) {
+                final Bitmap snapshot = foldableItems.valueAt(i).captureSnapshot();
+                if (snapshot != null) {
+                    foldSurface.setSnapshot(position, snapshot);
+                }
+            }
+        }
+    }
+
     private void setupAdapterView(FoldableItemLayout layout, int position) {
         // Binding layout to new data
         int type = adapter.getItemViewType(position);
 
         View recycledView = null;
         if (type != Adapter.IGNORE_ITEM_VIEW_TYPE) {
-            Queue<View> cache = recycledViews.get(type);
-            recycledView = cache == null ? null : cache.poll();
+            RecycledViews cache = recycledViews.get(type);
+            recycledView = cache == null ? null : cache.pop();
         }
 
         View view = adapter.getView(position, recycledView, layout.getBaseLayout());
 
-        if (type != Adapter.IGNORE_ITEM_VIEW_TYPE) {
-            viewsTypesMap.put(view, type);
-        }
-
+        layout.setViewType(type);
+        layout.setItemId(adapter.getItemId(position));
+        layout.setItemChanged(false);
         layout.getBaseLayout().addView(view, PARAMS);
     }
 
+    private void rebindAdapterView(FoldableItemLayout layout, int position) {
+        final View oldView = layout.getBaseLayout().getChildAt(0);
+        final View view = adapter.getView(position, oldView, layout.getBaseLayout());
+        layout.setItemId(adapter.getItemId(position));
+        layout.setItemChanged(false);
+
+        if (view != oldView) {
+            layout.getBaseLayout().removeAllViews();
+            layout.getBaseLayout().addView(view, PARAMS);
+        }
+    }
+
     private void recycleAdapterView(FoldableItemLayout layout) {
         if (layout.getBaseLayout().getChildCount() == 0) {
             return; // Nothing to recycle
@@ -372,24 +1165,79 @@ public class FoldableListLayout extends FrameLayout {
         View view = layout.getBaseLayout().getChildAt(0);
         layout.getBaseLayout().removeAllViews();
 
-        Integer type = viewsTypesMap.remove(view);
-        if (type != null) {
-            Queue<View> cache = recycledViews.get(type);
-            if (cache == null) {
-                recycledViews.put(type, cache = new LinkedList<>());
+        int type = layout.getViewType();
+        if (type != Adapter.IGNORE_ITEM_VIEW_TYPE) {
+            getRecycledViews(type).push(view);
+        }
+    }
+
+    private RecycledViews getRecycledViews(int viewType) {
+        RecycledViews cache = recycledViews.get(viewType);
+        if (cache == null) {
+            recycledViews.put(viewType, cache = new RecycledViews(DEFAULT_MAX_RECYCLED_VIEWS));
+        }
+        return cache;
+    }
+
+    /**
+     * Frees layouts of the items which are left outside of bound items window after fold was moved
+     * to given position. Window holds one slot per position in range
+     * [position - behind, position + 1 + ahead], so only slots of positions which were just passed
+     * over have to be checked.
+     */
+    private void moveItemsWindow(int firstVisiblePosition) {
+        final int shift = firstVisiblePosition - windowPosition;
+        if (shift == 0) {
+            return;
+        }
+        windowPosition = firstVisiblePosition;
+
+        final int from = firstVisiblePosition - itemsBehind;
+        final int to = firstVisiblePosition + 1 + itemsAhead;
+        final int count = Math.min(Math.abs(shift), foldableItems.capacity());
+
+        for (int i = 1; i <= count; i++) {
+            final int slotPosition = foldableItems.getSlotPosition(shift > 0 ? from - i : to + i);
+            if (slotPosition != ItemsWindow.NO_POSITION
+                    && (slotPosition < from || slotPosition > to)) {
+                freeLayout(slotPosition);
             }
-            cache.offer(view);
+        }
+    }
+
+    private void freeLayout(int position) {
+        FoldableItemLayout layout = foldableItems.remove(position);
+        recycleAdapterView(layout);
+        poolLayout(layout);
+
+        if (foldSurface != null) {
+            foldSurface.removeSnapshot(position);
+        }
+    }
+
+    private void poolLayout(FoldableItemLayout layout) {
+        // Pooled layouts are gone, so they are excluded from measure, layout and touch handling
+        layout.setVisibility(GONE);
+        layout.releaseCache();
+        foldableItemsCache.offer(layout);
+
+        // Pooled layout should not be drawn until it is bound again and set as visible layout
+        if (layout == frontLayout) {
+            frontLayout = null;
+        }
+        if (layout == backLayout) {
+            backLayout = null;
         }
     }
 
     private void freeAllLayouts() {
-        int size = foldableItemsMap.size();
+        int size = foldableItems.size();
         for (int i = 0; i < size; i++) {
-            FoldableItemLayout layout = foldableItemsMap.valueAt(i);
-            layout.getBaseLayout().removeAllViews(); // Clearing old data
-            foldableItemsCache.offer(layout);
+            FoldableItemLayout layout = foldableItems.valueAt(i);
+            recycleAdapterView(layout); // Clearing old data
+            poolLayout(layout);
         }
-        foldableItemsMap.clear();
+        foldableItems.clear();
     }
 
     /**
@@ -416,9 +1264,15 @@ public class FoldableListLayout extends FrameLayout {
         flingAnimation.stop();
 
         animator.cancel();
+        animationTarget = to;
         animator.setFloatValues(from, to);
         animator.setDuration(duration);
         animator.start();
+
+        if (foldSurface != null) {
+            foldSurface.animateRotation(from, to, duration, false);
+            updateFoldSurfaceState();
+        }
     }
 
 
@@ -528,12 +1382,17 @@ public class FoldableListLayout extends FrameLayout {
         void stop() {
             FoldableListLayout.this.removeCallbacks(this);
             isAnimating = false;
+            updateFoldSurfaceState();
         }
 
         boolean isAnimating() {
             return isAnimating;
         }
 
+        float getTarget() {
+            return velocity > 0f ? max : min;
+        }
+
         boolean fling(float velocity) {
             float rotation = getFoldRotation();
             if (rotation % 180f == 0f) {
@@ -548,13 +1407,69 @@ public class FoldableListLayout extends FrameLayout {
 
             startInternal();
 
+            if (foldSurface != null) {
+                // Running same linear motion on render thread
+                float target = getTarget();
+                long duration = (long) (Math.abs(target - rotation) / Math.abs(velocity) * 1000f);
+                foldSurface.animateRotation(rotation, target, duration, true);
+                updateFoldSurfaceState();
+            }
+
             return true;
         }
 
     }
 
+    /**
+     * Bounded array-backed stack of recycled views of a single type.
+     */
+    private static class RecycledViews {
+
+        private View[] views;
+        private int size;
+
+        RecycledViews(int maxSize) {
+            views = new View[maxSize];
+        }
+
+        void setMaxSize(int maxSize) {
+            View[] resized = new View[Math.max(0, maxSize)];
+            size = Math.min(size, resized.length);
+            System.arraycopy(views, 0, resized, 0, size);
+            views = resized;
+        }
+
+        void push(View view) {
+            // View is dropped if stack is full
+            if (size < views.length) {
+                views[size++] = view;
+            }
+        }
+
+        View pop() {
+            if (size == 0) {
+                return null;
+            }
+            View view = views[--size];
+            views[size] = null;
+            return view;
+        }
+
+        void clear() {
+            for (int i = 0; i < size; i++) {
+                views[i] = null;
+            }
+            size = 0;
+        }
+
+    }
+
     public interface OnFoldRotationListener {
         void onFoldRotation(float rotation, boolean isFromUser);
     }
 
+    public interface OnQualityChangeListener {
+        void onQualityChanged(int level);
+    }
+
 }
@@ -0,0 +1,58 @@
+package com.alexvasilkov.foldablelayout;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+
+/**
+ * Presents {@link FoldableAdapter} as a {@link BaseAdapter}, so that holder based adapters reuse
+ * the same binding and views recycling logic. Holders are stored as item views tags.
+ */
+final class HolderAdapter extends BaseAdapter {
+
+    private final FoldableAdapter<?> adapter;
+
+    HolderAdapter(FoldableAdapter<?> adapter) {
+        this.adapter = adapter;
+    }
+
+    FoldableAdapter<?> getFoldableAdapter() {
+        return adapter;
+    }
+
+    @Override
+    public int getCount() {
+        return adapter.getItemCount();
+    }
+
+    @Override
+    public Object getItem(int position) {
+        return null;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return adapter.getItemId(position);
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return adapter.hasStableIds();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return adapter.getItemViewType(position);
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        FoldableAdapter.ViewHolder holder = FoldableAdapter.ViewHolder.from(convertView);
+        if (holder == null) {
+            holder = adapter.createViewHolder(parent, adapter.getItemViewType(position));
+        }
+        adapter.bindViewHolder(holder, position);
+        return holder.itemView;
+    }
+
+}
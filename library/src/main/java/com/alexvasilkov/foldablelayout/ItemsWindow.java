@@ -0,0 +1,120 @@
+package com.alexvasilkov.foldablelayout;
+
+/**
+ * Ring buffer of item layouts keyed by adapter position.
+ * <p/>
+ * Each position is stored in slot {@code position % capacity}, so any range of {@code capacity}
+ * consecutive positions can be stored at once and lookup, insertion and removal are constant time.
+ * Stored items are also kept in a dense array, so they can be iterated with
+ * {@link #size()}, {@link #keyAt(int)} and {@link #valueAt(int)} as in SparseArray.
+ */
+final class ItemsWindow {
+
+    static final int NO_POSITION = -1;
+
+    private int[] slots = new int[0]; // Index of stored item in dense arrays, or -1 if empty
+    private int[] positions = new int[0];
+    private FoldableItemLayout[] layouts = new FoldableItemLayout[0];
+    private int size;
+
+    ItemsWindow(int capacity) {
+        setCapacity(capacity);
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * Changes capacity of the window. Window should be empty at this point.
+     */
+    void setCapacity(int capacity) {
+        if (size != 0) {
+            throw new IllegalStateException("Window should be cleared before resizing");
+        }
+        slots = new int[Math.max(1, capacity)];
+        positions = new int[slots.length];
+        layouts = new FoldableItemLayout[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = -1;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int keyAt(int index) {
+        return positions[index];
+    }
+
+    FoldableItemLayout valueAt(int index) {
+        return layouts[index];
+    }
+
+    FoldableItemLayout get(int position) {
+        final int index = slots[slotOf(position)];
+        return index != -1 && positions[index] == position ? layouts[index] : null;
+    }
+
+    /**
+     * Returns position of the item stored in the same slot as given position, or
+     * {@link #NO_POSITION} if that slot is empty.
+     */
+    int getSlotPosition(int position) {
+        final int index = slots[slotOf(position)];
+        return index == -1 ? NO_POSITION : positions[index];
+    }
+
+    void put(int position, FoldableItemLayout layout) {
+        final int slot = slotOf(position);
+        int index = slots[slot];
+
+        if (index == -1) {
+            index = size++;
+            slots[slot] = index;
+        } else if (positions[index] != position) {
+            throw new IllegalStateException("Slot for position " + position
+                    + " is taken by position " + positions[index]);
+        }
+
+        positions[index] = position;
+        layouts[index] = layout;
+    }
+
+    FoldableItemLayout remove(int position) {
+        final int slot = slotOf(position);
+        final int index = slots[slot];
+        if (index == -1 || positions[index] != position) {
+            return null;
+        }
+
+        final FoldableItemLayout layout = layouts[index];
+
+        // Moving last item into the freed place to keep dense arrays compact
+        final int last = --size;
+        if (index != last) {
+            positions[index] = positions[last];
+            layouts[index] = layouts[last];
+            slots[slotOf(positions[index])] = index;
+        }
+        layouts[last] = null;
+        slots[slot] = -1;
+
+        return layout;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            slots[slotOf(positions[i])] = -1;
+            layouts[i] = null;
+        }
+        size = 0;
+    }
+
+    private int slotOf(int position) {
+        final int slot = position % slots.length;
+        return slot < 0 ? slot + slots.length : slot;
+    }
+
+}
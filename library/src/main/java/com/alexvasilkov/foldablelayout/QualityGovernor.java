@@ -0,0 +1,179 @@
+package com.alexvasilkov.foldablelayout;
+
+import android.annotation.TargetApi;
+import android.content.Context;
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.Display;
+import android.view.View;
+import android.view.WindowManager;
+
+/**
+ * Measures durations of fold frames and steps quality level down when frames are over budget,
+ * or back up when there is enough headroom.
+ * <p/>
+ * Only intervals between two consecutive frames which both drew fold are measured, so idle
+ * frames (e.g. when finger is not moving) are not counted.
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+final class QualityGovernor implements Choreographer.FrameCallback {
+
+    private static final long DEFAULT_FRAME_BUDGET_NANOS = 1000000000L / 60L;
+
+    // Stepping down quickly if frames are much longer than budget
+    private static final int STEP_DOWN_FRAMES = 8;
+    private static final float STEP_DOWN_FACTOR = 1.5f;
+
+    // Stepping up slowly and only if frames are well within budget
+    private static final int STEP_UP_FRAMES = 60;
+    private static final float STEP_UP_FACTOR = 1.1f;
+
+    private final View view;
+    private final Listener listener;
+    private final int maxLevel;
+    private int level;
+
+    private long frameBudget = DEFAULT_FRAME_BUDGET_NANOS;
+
+    private boolean isRunning;
+    private boolean isDrawn;
+    private long lastFrameTime;
+
+    private long shortWindowDuration;
+    private int shortWindowFrames;
+    private long longWindowDuration;
+    private int longWindowFrames;
+
+    QualityGovernor(View view, int maxLevel, Listener listener) {
+        this.view = view;
+        this.maxLevel = maxLevel;
+        this.listener = listener;
+    }
+
+    int getLevel() {
+        return level;
+    }
+
+    /**
+     * Starts measuring frames while fold is in progress, stops once fold is at rest.
+     */
+    void setFolding(boolean isFolding) {
+        if (isRunning == isFolding) {
+            return;
+        }
+        isRunning = isFolding;
+
+        if (isFolding) {
+            // View can be moved to another display in between folds
+            frameBudget = getFrameBudget();
+            Choreographer.getInstance().postFrameCallback(this);
+        } else {
+            Choreographer.getInstance().removeFrameCallback(this);
+            lastFrameTime = 0L;
+            isDrawn = false;
+        }
+    }
+
+    /**
+     * Should be called each time fold is drawn.
+     */
+    void onFoldDrawn() {
+        isDrawn = true;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!isRunning) {
+            return;
+        }
+
+        if (isDrawn && lastFrameTime != 0L) {
+            onFrame(frameTimeNanos - lastFrameTime);
+        }
+        lastFrameTime = isDrawn ? frameTimeNanos : 0L;
+        isDrawn = false;
+
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    private void onFrame(long duration) {
+        shortWindowDuration += duration;
+        shortWindowFrames++;
+        longWindowDuration += duration;
+        longWindowFrames++;
+
+        if (shortWindowFrames == STEP_DOWN_FRAMES) {
+            if (shortWindowDuration > STEP_DOWN_FACTOR * frameBudget * STEP_DOWN_FRAMES) {
+                setLevel(getNextLevel(1));
+                return;
+            }
+            shortWindowDuration = 0L;
+            shortWindowFrames = 0;
+        }
+
+        if (longWindowFrames == STEP_UP_FRAMES) {
+            if (longWindowDuration < STEP_UP_FACTOR * frameBudget * STEP_UP_FRAMES) {
+                setLevel(getNextLevel(-1));
+                return;
+            }
+            longWindowDuration = 0L;
+            longWindowFrames = 0;
+        }
+    }
+
+    /**
+     * Returns next level in given direction, skipping intermediate levels which have no effect.
+     * Highest and lowest levels are never skipped.
+     */
+    private int getNextLevel(int direction) {
+        int next = level + direction;
+        while (next > 0 && next < maxLevel && !listener.isLevelEffective(next)) {
+            next += direction;
+        }
+        return next;
+    }
+
+    /**
+     * Returns refresh interval of the display view is shown on.
+     */
+    private long getFrameBudget() {
+        Display display = null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            display = getDisplay(view);
+        }
+        if (display == null) {
+            WindowManager windowManager = (WindowManager) view.getContext()
+                    .getSystemService(Context.WINDOW_SERVICE);
+            display = windowManager.getDefaultDisplay();
+        }
+
+        final float refreshRate = display.getRefreshRate();
+        return refreshRate > 0f ? (long) (1000000000L / refreshRate) : DEFAULT_FRAME_BUDGET_NANOS;
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR1)
+    private static Display getDisplay(View view) {
+        return view.getDisplay();
+    }
+
+    void setLevel(int level) {
+        level = Math.max(0, Math.min(level, maxLevel));
+
+        // Starting measurements from scratch with new quality level
+        shortWindowDuration = longWindowDuration = 0L;
+        shortWindowFrames = longWindowFrames = 0;
+
+        if (this.level != level) {
+            this.level = level;
+            listener.onLevelChanged(level);
+        }
+    }
+
+
+    interface Listener {
+        void onLevelChanged(int level);
+
+        boolean isLevelEffective(int level);
+    }
+
+}
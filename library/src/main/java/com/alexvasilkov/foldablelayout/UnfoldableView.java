@@ -49,6 +49,9 @@ public class UnfoldableView extends FoldableListLayout {
     private Rect coverViewPosition;
     private Rect detailsViewPosition;
 
+    private final Rect invalidationBounds = new Rect();
+    private final int[] parentLocation = new int[2];
+
     private Adapter adapter;
 
     private float lastFoldRotation;
@@ -84,6 +87,15 @@ public class UnfoldableView extends FoldableListLayout {
         this.foldingListener = listener;
     }
 
+    /**
+     * Not supported, render thread does not apply items scale, rolling distance and view
+     * translation used by unfold animation. Calls are ignored.
+     */
+    @Override
+    public void setRenderThreadEnabled(boolean isEnabled) {
+        // Not supported
+    }
+
     @SuppressWarnings("unused") // Public API
     public void changeCoverView(View coverView) {
         if (this.coverView == null || this.coverView == coverView) {
@@ -258,12 +270,34 @@ public class UnfoldableView extends FoldableListLayout {
         }
 
         // On old versions invalidation is done incorrectly if clipChildren is set to false,
-        // so we have to invalidate entire parent to prevent animation artifacts
+        // so we have to invalidate animated area of the parent to prevent animation artifacts
         if (Build.VERSION.SDK_INT <= Build.VERSION_CODES.JELLY_BEAN_MR1) {
-            ((ViewGroup) getParent()).invalidate();
+            invalidateParent();
         }
     }
 
+    /**
+     * Invalidates parent's area which can be touched by animation. Intermediate positions are
+     * interpolated between cover and details views positions, so their union covers entire
+     * animation, extended to the sides to fit folding part's perspective.
+     */
+    private void invalidateParent() {
+        final ViewGroup parent = (ViewGroup) getParent();
+
+        invalidationBounds.set(coverViewPosition);
+        invalidationBounds.union(detailsViewPosition);
+        final int perspective = (int) Math.ceil(detailsViewPosition.height()
+                * FoldableItemLayout.CAMERA_DISTANCE_MAGIC_FACTOR * 0.5f);
+        invalidationBounds.inset(-perspective, 0);
+
+        // Converting from screen coordinates into parent's coordinates
+        parent.getLocationOnScreen(parentLocation);
+        invalidationBounds.offset(parent.getScrollX() - parentLocation[0],
+                parent.getScrollY() - parentLocation[1]);
+
+        parent.invalidate(invalidationBounds);
+    }
+
     @Override
     protected void onFoldRotationChanged(FoldableItemLayout layout, int position) {
         super.onFoldRotationChanged(layout, position);
@@ -1,8 +1,15 @@
 package com.alexvasilkov.foldablelayout;
 
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.Rect;
 import android.os.Build;
 import android.view.View;
 
+import com.alexvasilkov.foldablelayout.shading.FilterFoldShading;
+import com.alexvasilkov.foldablelayout.shading.FoldShading;
+
 class Utils {
 
     private static final long FRAME_TIME = 10L;
@@ -18,4 +25,40 @@ class Utils {
         }
     }
 
+    /**
+     * Sets shading's color filter for given rotation to the paint used to draw cached content.
+     * Returns true if color filter was set, see {@link FilterFoldShading}.
+     */
+    static boolean applyShadingFilter(Paint paint, FoldShading shading,
+            float rotation, int gravity) {
+        ColorFilter filter = null;
+        if (shading instanceof FilterFoldShading) {
+            filter = ((FilterFoldShading) shading).getColorFilter(rotation, gravity);
+        }
+        paint.setColorFilter(filter);
+        return filter != null;
+    }
+
+    /**
+     * Draws shading on top of drawn content, if shading's color filter was already applied then
+     * only remaining part of shading is drawn.
+     */
+    static void postDrawShading(Canvas canvas, Rect bounds, FoldShading shading,
+            float rotation, int gravity, boolean isFiltered) {
+        if (isFiltered) {
+            ((FilterFoldShading) shading).onPostDrawFiltered(canvas, bounds, rotation, gravity);
+        } else if (shading != null) {
+            shading.onPostDraw(canvas, bounds, rotation, gravity);
+        }
+    }
+
+    static void postOnNextFrame(View view, Runnable action) {
+        view.removeCallbacks(action);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            view.postOnAnimation(action);
+        } else {
+            view.post(action);
+        }
+    }
+
 }
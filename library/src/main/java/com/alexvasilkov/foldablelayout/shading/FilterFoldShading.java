@@ -0,0 +1,30 @@
+package com.alexvasilkov.foldablelayout.shading;
+
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Rect;
+
+/**
+ * Fold shading which can darken folding parts with a color filter applied while drawing cached
+ * content, instead of drawing shadow on top of already drawn content.
+ * <p/>
+ * Color filter is only used when content is drawn from cache bitmap, otherwise
+ * {@link #onPostDraw(Canvas, Rect, float, int)} is called as usual.
+ */
+public interface FilterFoldShading extends FoldShading {
+    /**
+     * Returns color filter to apply to the cached content for given rotation, or null if no
+     * filtering is needed.
+     * <p/>
+     * This method can be called from render thread (see
+     * {@link com.alexvasilkov.foldablelayout.FoldableListLayout#setRenderThreadEnabled(boolean)}),
+     * so it should be thread-safe and returned filters should not be modified afterwards.
+     */
+    ColorFilter getColorFilter(float rotation, int gravity);
+
+    /**
+     * Called instead of {@link #onPostDraw(Canvas, Rect, float, int)} if color filter returned by
+     * {@link #getColorFilter(float, int)} was applied to drawn content.
+     */
+    void onPostDrawFiltered(Canvas canvas, Rect bounds, float rotation, int gravity);
+}
@@ -4,19 +4,21 @@ import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.ColorFilter;
 import android.graphics.Paint;
 import android.graphics.Rect;
 import android.view.Gravity;
 
-public class GlanceFoldShading implements FoldShading {
+public class GlanceFoldShading implements FilterFoldShading {
 
     private static final int SHADOW_COLOR = Color.BLACK;
     private static final int SHADOW_MAX_ALPHA = 192;
 
     private final Paint solidShadow;
+    private final ShadowFilters shadowFilters = new ShadowFilters(SHADOW_MAX_ALPHA);
 
-    private final Paint glancePaint;
     private final Bitmap glance;
+    private Bitmap scaledGlance;
     private final Rect glanceFrom;
     private final Rect glanceTo;
 
@@ -25,9 +27,6 @@ public class GlanceFoldShading implements FoldShading {
         solidShadow.setColor(SHADOW_COLOR);
 
         this.glance = glance;
-        glancePaint = new Paint();
-        glancePaint.setDither(true);
-        glancePaint.setFilterBitmap(true);
         glanceFrom = new Rect();
         glanceTo = new Rect();
     }
@@ -56,9 +55,26 @@ public class GlanceFoldShading implements FoldShading {
             canvas.drawRect(bounds, solidShadow);
         }
 
+        drawGlance(canvas, bounds, rotation, gravity);
+    }
+
+    @Override
+    public ColorFilter getColorFilter(float rotation, int gravity) {
+        float intensity = getShadowIntensity(rotation, gravity);
+        return intensity > 0f ? shadowFilters.get((int) (SHADOW_MAX_ALPHA * intensity)) : null;
+    }
+
+    @Override
+    public void onPostDrawFiltered(Canvas canvas, Rect bounds, float rotation, int gravity) {
+        // Shadow is already applied by color filter, drawing glance only
+        drawGlance(canvas, bounds, rotation, gravity);
+    }
+
+    private void drawGlance(Canvas canvas, Rect bounds, float rotation, int gravity) {
         boolean isDrawGlance = computeGlance(bounds, rotation, gravity);
         if (isDrawGlance) {
-            canvas.drawBitmap(glance, glanceFrom, glanceTo, glancePaint);
+            // Glance is pre-scaled, so it is drawn without scaling and filtering
+            canvas.drawBitmap(scaledGlance, glanceFrom, glanceTo, null);
         }
     }
 
@@ -75,32 +91,50 @@ public class GlanceFoldShading implements FoldShading {
     private boolean computeGlance(Rect bounds, float rotation, int gravity) {
         if (gravity == Gravity.BOTTOM) {
             if (rotation > 0f && rotation < 90f) { // (0; 90) - Rotation is applied
-                final float aspect = (float) glance.getWidth() / (float) bounds.width();
+                if (bounds.isEmpty() || !ensureScaledGlance(bounds.width())) {
+                    return false;
+                }
 
                 // Computing glance offset
                 final int distance = (int) (bounds.height() * ((rotation - 60f) / 15f));
-                final int distanceOnGlance = (int) (distance * aspect);
 
                 // Computing "to" bounds
-                int scaledGlanceHeight = (int) (glance.getHeight() / aspect);
                 glanceTo.set(bounds.left, bounds.top + distance,
-                        bounds.right, bounds.top + distance + scaledGlanceHeight);
+                        bounds.right, bounds.top + distance + scaledGlance.getHeight());
 
                 if (!glanceTo.intersect(bounds)) {
                     // Glance is not visible
                     return false;
                 }
 
-                // Computing "from" bounds
-                int scaledBoundsHeight = (int) (bounds.height() * aspect);
-                glanceFrom.set(0, -distanceOnGlance, glance.getWidth(),
-                        -distanceOnGlance + scaledBoundsHeight);
-
-                return glanceFrom.intersect(0, 0, glance.getWidth(), glance.getHeight());
+                // Computing "from" bounds, it has same size as "to" bounds
+                glanceFrom.set(glanceTo);
+                glanceFrom.offset(-bounds.left, -bounds.top - distance);
+                return true;
             }
         }
 
         return false;
     }
 
+    /**
+     * Scales glance to given width, scaled glance is reused until width is changed.
+     */
+    private boolean ensureScaledGlance(int width) {
+        if (scaledGlance != null && scaledGlance.getWidth() == width) {
+            return true;
+        }
+
+        int height = Math.round(glance.getHeight() * width / (float) glance.getWidth());
+        if (height <= 0) {
+            return false;
+        }
+
+        if (scaledGlance != null && scaledGlance != glance) {
+            scaledGlance.recycle();
+        }
+        scaledGlance = Bitmap.createScaledBitmap(glance, width, height, true);
+        return true;
+    }
+
 }
@@ -0,0 +1,87 @@
+package com.alexvasilkov.foldablelayout.shading;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Shader;
+import android.view.Gravity;
+
+/**
+ * Fold shading which darkens rotating part with gradient getting darker towards the fold line.
+ * <p/>
+ * Gradient shader is created once for unit height and is only moved into part's bounds with
+ * local matrix, shadow alpha is quantized and taken from precomputed table, so nothing is
+ * allocated while folding.
+ * <p/>
+ * Unlike {@link SimpleFoldShading}, which darkens cached content with a color filter, gradient
+ * cannot be expressed as a color filter and is drawn as an extra pass over each rotating part.
+ * See shading benchmark in sample app for relative costs.
+ */
+public class GradientFoldShading implements FoldShading {
+
+    private static final int SHADOW_EDGE_ALPHA = 96;
+    private static final int SHADOW_MAX_ALPHA = 224;
+    private static final int ALPHA_STEPS = 32;
+
+    private final Shader gradient;
+    private final Paint gradientShadow;
+    private final Matrix gradientMatrix;
+    private final int[] alphas;
+
+    public GradientFoldShading() {
+        // Gradient from outer edge (0) to fold line (1)
+        gradient = new LinearGradient(0f, 0f, 0f, 1f,
+                Color.argb(SHADOW_EDGE_ALPHA, 0, 0, 0), Color.BLACK, Shader.TileMode.CLAMP);
+        gradientShadow = new Paint();
+        gradientMatrix = new Matrix();
+
+        alphas = new int[ALPHA_STEPS + 1];
+        for (int i = 0; i <= ALPHA_STEPS; i++) {
+            alphas[i] = Math.round(SHADOW_MAX_ALPHA * i / (float) ALPHA_STEPS);
+        }
+    }
+
+    @Override
+    public void onPreDraw(Canvas canvas, Rect bounds, float rotation, int gravity) {
+        // No-op
+    }
+
+    @Override
+    public void onPostDraw(Canvas canvas, Rect bounds, float rotation, int gravity) {
+        float intensity = getShadowIntensity(rotation, gravity);
+        int alpha = alphas[Math.round(intensity * ALPHA_STEPS)];
+
+        if (alpha > 0 && !bounds.isEmpty()) {
+            // Fold line is at the bottom of top part and at the top of bottom part
+            if (gravity == Gravity.TOP) {
+                gradientMatrix.setScale(1f, bounds.height());
+                gradientMatrix.postTranslate(0f, bounds.top);
+            } else {
+                gradientMatrix.setScale(1f, -bounds.height());
+                gradientMatrix.postTranslate(0f, bounds.bottom);
+            }
+            gradient.setLocalMatrix(gradientMatrix);
+            gradientShadow.setShader(gradient); // Makes sure updated matrix is picked up
+            gradientShadow.setAlpha(alpha);
+            canvas.drawRect(bounds, gradientShadow);
+        }
+    }
+
+    private float getShadowIntensity(float rotation, int gravity) {
+        float intensity = 0f;
+        if (gravity == Gravity.TOP) {
+            if (rotation > -90f && rotation < 0f) { // (-90; 0) - Rotation is applied
+                intensity = -rotation / 90f;
+            }
+        } else {
+            if (rotation > 0f && rotation < 90f) { // (0; 90) - Rotation is applied
+                intensity = rotation / 90f;
+            }
+        }
+        return intensity;
+    }
+
+}
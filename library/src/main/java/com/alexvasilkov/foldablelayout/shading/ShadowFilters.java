@@ -0,0 +1,29 @@
+package com.alexvasilkov.foldablelayout.shading;
+
+import android.graphics.Color;
+import android.graphics.ColorFilter;
+import android.graphics.LightingColorFilter;
+
+/**
+ * Cache of color filters which darken content same as black shadow drawn on top of it with
+ * given alpha. Filters are created lazily, one per alpha value.
+ * <p/>
+ * Cache is thread-safe, since filters are also requested from render thread.
+ */
+final class ShadowFilters {
+
+    private final ColorFilter[] filters;
+
+    ShadowFilters(int maxAlpha) {
+        filters = new ColorFilter[maxAlpha + 1];
+    }
+
+    synchronized ColorFilter get(int alpha) {
+        if (filters[alpha] == null) {
+            int light = 255 - alpha;
+            filters[alpha] = new LightingColorFilter(Color.rgb(light, light, light), 0);
+        }
+        return filters[alpha];
+    }
+
+}
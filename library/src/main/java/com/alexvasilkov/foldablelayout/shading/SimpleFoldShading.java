@@ -2,16 +2,18 @@ package com.alexvasilkov.foldablelayout.shading;
 
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.ColorFilter;
 import android.graphics.Paint;
 import android.graphics.Rect;
 import android.view.Gravity;
 
-public class SimpleFoldShading implements FoldShading {
+public class SimpleFoldShading implements FilterFoldShading {
 
     private static final int SHADOW_COLOR = Color.BLACK;
     private static final int SHADOW_MAX_ALPHA = 192;
 
     private final Paint solidShadow;
+    private final ShadowFilters shadowFilters = new ShadowFilters(SHADOW_MAX_ALPHA);
 
     public SimpleFoldShading() {
         solidShadow = new Paint();
@@ -33,6 +35,17 @@ public class SimpleFoldShading implements FoldShading {
         }
     }
 
+    @Override
+    public ColorFilter getColorFilter(float rotation, int gravity) {
+        float intensity = getShadowIntensity(rotation, gravity);
+        return intensity > 0f ? shadowFilters.get((int) (SHADOW_MAX_ALPHA * intensity)) : null;
+    }
+
+    @Override
+    public void onPostDrawFiltered(Canvas canvas, Rect bounds, float rotation, int gravity) {
+        // No-op, shadow is already applied by color filter
+    }
+
     private float getShadowIntensity(float rotation, int gravity) {
         float intensity = 0f;
         if (gravity == Gravity.TOP) {
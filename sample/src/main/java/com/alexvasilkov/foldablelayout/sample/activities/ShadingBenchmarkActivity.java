@@ -0,0 +1,125 @@
+package com.alexvasilkov.foldablelayout.sample.activities;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Bundle;
+import android.view.Gravity;
+import android.widget.TextView;
+
+import com.alexvasilkov.android.commons.ui.Views;
+import com.alexvasilkov.foldablelayout.sample.R;
+import com.alexvasilkov.foldablelayout.shading.FilterFoldShading;
+import com.alexvasilkov.foldablelayout.shading.FoldShading;
+import com.alexvasilkov.foldablelayout.shading.GradientFoldShading;
+import com.alexvasilkov.foldablelayout.shading.SimpleFoldShading;
+
+import java.util.Locale;
+
+/**
+ * Compares per-frame cost of fold shadings. Each frame draws both parts of a folding item from
+ * a cached bitmap with given shading, the same way foldable layouts do, rotation is swept across
+ * the whole fold. Drawing is done into a software canvas, so results are relative.
+ */
+public class ShadingBenchmarkActivity extends BaseActivity {
+
+    private static final int WIDTH = 720;
+    private static final int HEIGHT = 1080;
+    private static final int WARMUP_FRAMES = 60;
+    private static final int FRAMES = 300;
+
+    private TextView results;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_shading_benchmark);
+        getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+
+        results = Views.find(this, R.id.benchmark_results);
+        results.setText("Running...");
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final String text = runBenchmarks();
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        results.setText(text);
+                    }
+                });
+            }
+        }).start();
+    }
+
+    private static String runBenchmarks() {
+        final Bitmap content = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+        content.eraseColor(0xFF336699);
+        final Bitmap target = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(target);
+
+        final StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.US, "%d frames of %dx%d\n\n", FRAMES, WIDTH, HEIGHT));
+        appendResult(builder, "No shading", canvas, content, null);
+        appendResult(builder, "SimpleFoldShading", canvas, content, new SimpleFoldShading());
+        appendResult(builder, "GradientFoldShading", canvas, content, new GradientFoldShading());
+
+        content.recycle();
+        target.recycle();
+        return builder.toString();
+    }
+
+    private static void appendResult(StringBuilder builder, String name, Canvas canvas,
+            Bitmap content, FoldShading shading) {
+        final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG | Paint.DITHER_FLAG);
+        final Rect top = new Rect(0, 0, WIDTH, HEIGHT / 2);
+        final Rect bottom = new Rect(0, HEIGHT / 2, WIDTH, HEIGHT);
+
+        for (int i = 0; i < WARMUP_FRAMES; i++) {
+            drawFrame(canvas, content, paint, top, bottom, shading, i, WARMUP_FRAMES);
+        }
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < FRAMES; i++) {
+            drawFrame(canvas, content, paint, top, bottom, shading, i, FRAMES);
+        }
+        final long duration = System.nanoTime() - start;
+
+        builder.append(String.format(Locale.US, "%-20s %6.3f ms/frame\n",
+                name, duration / 1000000.0 / FRAMES));
+    }
+
+    private static void drawFrame(Canvas canvas, Bitmap content, Paint paint, Rect top,
+            Rect bottom, FoldShading shading, int frame, int frames) {
+        // Sweeping rotation across the fold, top part is rotated during first half only
+        final float rotation = 180f * frame / frames;
+        drawPart(canvas, content, paint, top, shading, rotation < 90f ? 0f : rotation - 180f,
+                Gravity.TOP);
+        drawPart(canvas, content, paint, bottom, shading, rotation < 90f ? rotation : 0f,
+                Gravity.BOTTOM);
+    }
+
+    private static void drawPart(Canvas canvas, Bitmap content, Paint paint, Rect bounds,
+            FoldShading shading, float rotation, int gravity) {
+        if (shading != null) {
+            shading.onPreDraw(canvas, bounds, rotation, gravity);
+        }
+
+        ColorFilter filter = null;
+        if (shading instanceof FilterFoldShading) {
+            filter = ((FilterFoldShading) shading).getColorFilter(rotation, gravity);
+        }
+        paint.setColorFilter(filter);
+        canvas.drawBitmap(content, bounds, bounds, paint);
+
+        if (filter != null) {
+            ((FilterFoldShading) shading).onPostDrawFiltered(canvas, bounds, rotation, gravity);
+        } else if (shading != null) {
+            shading.onPostDraw(canvas, bounds, rotation, gravity);
+        }
+    }
+
+}